@@ -0,0 +1,157 @@
+package jkind.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import jkind.JKindException;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.lustre.Program;
+
+/**
+ * Keeps the advice files written by JKind so that later runs on the same
+ * model, or an edited version of it, start from previously found invariants.
+ *
+ * Entries are keyed by the main node name and a hash of the program. A run
+ * reads the entry for the exact program if there is one, and otherwise the
+ * most recently used entry for the same main node. JKind discards advice
+ * which no longer applies, so advice from an older version of a model is
+ * safe to use. The least recently used entries are evicted once the cache
+ * exceeds its entry or size limit.
+ */
+public class AdviceCache {
+	public static final int DEFAULT_MAX_ENTRIES = 200;
+	public static final long DEFAULT_MAX_BYTES = 100L * 1024 * 1024;
+	private static final String SUFFIX = ".adv";
+
+	private final File directory;
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+
+	public AdviceCache(File directory) {
+		this.directory = directory;
+	}
+
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Run JKind on a Lustre program, reading and updating cached advice. Any
+	 * advice files already configured on the api are ignored for this run.
+	 *
+	 * @param api
+	 *            Configured JKind api
+	 * @param program
+	 *            Lustre program
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public void execute(JKindApi api, Program program, JKindResult result, ICancellationMonitor monitor) {
+		String readAdviceFileName = api.readAdviceFileName;
+		String writeAdviceFileName = api.writeAdviceFileName;
+		String key = getKey(program);
+		File written = null;
+
+		try {
+			directory.mkdirs();
+			File advice = lookup(program, key);
+			written = File.createTempFile(key, ".tmp", directory);
+			api.readAdviceFileName = advice == null ? null : advice.getAbsolutePath();
+			api.writeAdviceFileName = written.getAbsolutePath();
+			api.apiDebug("Advice cache: reading " + advice + ", writing " + key);
+
+			api.execute(program, result, monitor);
+
+			if (!monitor.isCanceled() && written.length() > 0) {
+				store(written, key);
+			}
+		} catch (IOException e) {
+			throw new JKindException("Error using advice cache in " + directory, e);
+		} finally {
+			api.readAdviceFileName = readAdviceFileName;
+			api.writeAdviceFileName = writeAdviceFileName;
+			if (written != null) {
+				written.delete();
+			}
+		}
+	}
+
+	/**
+	 * Find the best cached advice for a program
+	 *
+	 * @return The advice file, or null if there is none
+	 */
+	public synchronized File lookup(Program program) {
+		return lookup(program, getKey(program));
+	}
+
+	private synchronized File lookup(Program program, String key) {
+		File exact = new File(directory, key + SUFFIX);
+		if (exact.isFile()) {
+			return touch(exact);
+		}
+
+		String prefix = getPrefix(program);
+		File best = null;
+		for (File entry : getEntries()) {
+			if (entry.getName().startsWith(prefix)
+					&& (best == null || entry.lastModified() > best.lastModified())) {
+				best = entry;
+			}
+		}
+		return best == null ? null : touch(best);
+	}
+
+	private synchronized void store(File written, String key) throws IOException {
+		File entry = new File(directory, key + SUFFIX);
+		Files.move(written.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		touch(entry);
+		evict();
+	}
+
+	private void evict() {
+		List<File> entries = getEntries();
+		entries.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+		long bytes = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			bytes += entries.get(i).length();
+			if (i >= maxEntries || bytes > maxBytes) {
+				entries.get(i).delete();
+			}
+		}
+	}
+
+	private List<File> getEntries() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		return files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+	}
+
+	private static File touch(File file) {
+		file.setLastModified(System.currentTimeMillis());
+		return file;
+	}
+
+	private static String getPrefix(Program program) {
+		String main = program.getMainNode().id.replaceAll("[^A-Za-z0-9_]", "_");
+		return main + "-";
+	}
+
+	private static String getKey(Program program) {
+		return getPrefix(program) + ProgramHash.of(program);
+	}
+}
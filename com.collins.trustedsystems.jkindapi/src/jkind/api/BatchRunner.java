@@ -0,0 +1,312 @@
+package jkind.api;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import jkind.JKindException;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.api.results.TickService;
+import jkind.lustre.Program;
+
+/**
+ * Runs a batch of analyses on a fixed number of workers. Jobs are started
+ * longest expected runtime first, using a {@link RuntimeHistory}, so that a
+ * slow model does not start last and stretch the whole batch.
+ *
+ * While the batch runs, the predicted completion time is available from
+ * {@link #getPredictedCompletion()} and is reported to listeners of the
+ * "predictedCompletion" property whenever a job starts or finishes.
+ *
+ * A batch may be given a total wall clock budget. Each job then gets a time
+ * slice in proportion to its expected runtime. Time left over by jobs which
+ * finish early is given to jobs which run past their slice while still
+ * making progress, as seen from {@link PropertyResult#getBaseProgress()}.
+ * Jobs past their slice without progress, and all jobs still running when
+ * the budget runs out, are canceled.
+ */
+public class BatchRunner {
+	public static final long PROGRESS_WINDOW = 30_000;
+	public static final long MIN_SLICE = 1_000;
+
+	private final int workers;
+	private final RuntimeHistory history;
+	private final List<Job> jobs = new ArrayList<>();
+	private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
+	private long budget = 0;
+	private long end;
+	private long spare;
+
+	public BatchRunner(int workers, RuntimeHistory history) {
+		this.workers = workers;
+		this.history = history;
+	}
+
+	/**
+	 * Add an analysis to the batch
+	 *
+	 * @param api
+	 *            Configured backend
+	 * @param program
+	 *            Lustre program
+	 * @param result
+	 *            Place to store results as they come in
+	 */
+	public void add(KindApi api, Program program, JKindResult result) {
+		jobs.add(new Job(api, program, result));
+	}
+
+	/**
+	 * Limit the wall clock time of the whole batch. Jobs still running at the
+	 * end of the budget are canceled; the configuration of each api, including
+	 * its timeout, is left as given.
+	 *
+	 * @param budget
+	 *            Time in milliseconds, or 0 for no limit
+	 */
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	public void addPropertyChangeListener(PropertyChangeListener listener) {
+		pcs.addPropertyChangeListener(listener);
+	}
+
+	public void removePropertyChangeListener(PropertyChangeListener listener) {
+		pcs.removePropertyChangeListener(listener);
+	}
+
+	/**
+	 * Run all jobs and wait for them to finish. A job which fails does not stop
+	 * the others; the first failure is rethrown once the batch is finished.
+	 *
+	 * @param monitor
+	 *            Used to check for cancellation of the whole batch
+	 * @throws jkind.JKindException
+	 */
+	public void execute(ICancellationMonitor monitor) {
+		for (Job job : jobs) {
+			job.estimate = history.estimate(job.program);
+		}
+		jobs.sort(Comparator.comparingLong((Job job) -> job.estimate).reversed());
+		allocate();
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers, VirtualThreads.newThreadFactory("BatchRunner"));
+		ScheduledFuture<?> watchdog = null;
+		try {
+			if (budget > 0) {
+				watchdog = TickService.getDefault().scheduleAtFixedRate(this::checkBudget, TickService.TICK_INTERVAL);
+			}
+			for (Job job : jobs) {
+				pool.execute(() -> run(job, new JobMonitor(job, monitor)));
+			}
+			pool.shutdown();
+			firePrediction();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+		} finally {
+			if (watchdog != null) {
+				TickService.getDefault().cancel(watchdog);
+			}
+			monitor.done();
+		}
+
+		for (Job job : jobs) {
+			if (job.error != null) {
+				throw job.error;
+			}
+		}
+	}
+
+	/**
+	 * Divide the budget over all workers between the jobs in proportion to
+	 * their estimated runtimes
+	 */
+	private void allocate() {
+		end = budget > 0 ? System.currentTimeMillis() + budget : Long.MAX_VALUE;
+		spare = 0;
+		if (budget <= 0) {
+			return;
+		}
+
+		long total = 0;
+		for (Job job : jobs) {
+			total += Math.max(job.estimate, 1);
+		}
+		for (Job job : jobs) {
+			double share = (double) Math.max(job.estimate, 1) / total;
+			job.slice = Math.min((long) (share * budget * workers), budget);
+		}
+	}
+
+	private void run(Job job, ICancellationMonitor monitor) {
+		long now = System.currentTimeMillis();
+		if (!start(job, now) || monitor.isCanceled()) {
+			job.result.cancel();
+			job.finished = true;
+			return;
+		}
+
+		firePrediction();
+		try {
+			job.api.execute(job.program, job.result, monitor);
+			if (!monitor.isCanceled()) {
+				history.record(job.program, job.result, System.currentTimeMillis() - job.start);
+			}
+		} catch (JKindException e) {
+			job.error = e;
+		} catch (RuntimeException e) {
+			job.error = new JKindException("Error running " + job.result.getName(), e);
+		} finally {
+			finish(job);
+			firePrediction();
+		}
+	}
+
+	private synchronized boolean start(Job job, long now) {
+		if (budget > 0) {
+			long remaining = end - now;
+			if (remaining < MIN_SLICE) {
+				return false;
+			}
+			job.deadline = now + Math.min(job.slice, remaining);
+		}
+		job.start = now;
+		return true;
+	}
+
+	private synchronized void finish(Job job) {
+		job.finished = true;
+		if (budget > 0) {
+			spare += Math.max(job.deadline - System.currentTimeMillis(), 0);
+		}
+	}
+
+	/**
+	 * Cancel jobs which are out of time, unless they are making progress and
+	 * there is spare time to extend them
+	 */
+	private synchronized void checkBudget() {
+		long now = System.currentTimeMillis();
+		for (Job job : jobs) {
+			if (job.start == 0 || job.finished || job.stopped) {
+				continue;
+			}
+
+			int progress = getProgress(job.result);
+			if (progress > job.progress) {
+				job.progress = progress;
+				job.lastProgress = now;
+			}
+
+			if (now >= end) {
+				job.stopped = true;
+			} else if (now >= job.deadline) {
+				if (job.progress > 0 && now - job.lastProgress <= PROGRESS_WINDOW && spare > 0) {
+					long extension = Math.min(Math.min(spare, Math.max(job.slice, MIN_SLICE)), end - job.deadline);
+					job.deadline += extension;
+					spare -= extension;
+				} else {
+					job.stopped = true;
+				}
+			}
+		}
+	}
+
+	private static int getProgress(JKindResult result) {
+		int progress = 0;
+		for (PropertyResult pr : result.getPropertyResults()) {
+			progress = Math.max(progress, pr.getBaseProgress());
+		}
+		return progress;
+	}
+
+	private void firePrediction() {
+		pcs.firePropertyChange("predictedCompletion", null, getPredictedCompletion());
+	}
+
+	/**
+	 * Predict when the batch will finish by assigning the remaining work to
+	 * workers in the order it will be started
+	 *
+	 * @return Predicted completion time in milliseconds since the epoch
+	 */
+	public long getPredictedCompletion() {
+		long now = System.currentTimeMillis();
+		PriorityQueue<Long> free = new PriorityQueue<>();
+		List<Job> queued = new ArrayList<>();
+
+		for (Job job : jobs) {
+			if (job.finished) {
+				continue;
+			} else if (job.start > 0) {
+				free.add(now + Math.max(job.estimate - (now - job.start), 0));
+			} else {
+				queued.add(job);
+			}
+		}
+		while (free.size() < workers) {
+			free.add(now);
+		}
+
+		for (Job job : queued) {
+			free.add(free.poll() + job.estimate);
+		}
+
+		long completion = now;
+		for (long finish : free) {
+			completion = Math.max(completion, finish);
+		}
+		return completion;
+	}
+
+	private static class Job {
+		private final KindApi api;
+		private final Program program;
+		private final JKindResult result;
+		private long estimate;
+		private long slice;
+		private long deadline;
+		private int progress = 0;
+		private long lastProgress;
+		private volatile long start = 0;
+		private volatile boolean finished = false;
+		private volatile boolean stopped = false;
+		private volatile JKindException error;
+
+		public Job(KindApi api, Program program, JKindResult result) {
+			this.api = api;
+			this.program = program;
+			this.result = result;
+		}
+	}
+
+	private static class JobMonitor implements ICancellationMonitor {
+		private final Job job;
+		private final ICancellationMonitor monitor;
+
+		public JobMonitor(Job job, ICancellationMonitor monitor) {
+			this.job = job;
+			this.monitor = monitor;
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return job.stopped || monitor.isCanceled();
+		}
+
+		@Override
+		public void done() {
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package jkind.api;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.api.results.Status;
+
+/**
+ * A cancellation monitor which also reports cancellation once a condition
+ * over the live results holds. Since every backend kills its solver and marks
+ * the remaining properties CANCELED when its monitor is canceled, wrapping
+ * the monitor passed to any {@link KindApi#execute} stops the analysis as
+ * soon as enough is known.
+ *
+ * <pre>
+ * api.execute(program, result, new EarlyTermination(result, EarlyTermination.anyInvalid(), monitor));
+ * </pre>
+ */
+public class EarlyTermination implements ICancellationMonitor {
+	private final JKindResult result;
+	private final Predicate<JKindResult> condition;
+	private final ICancellationMonitor monitor;
+	private volatile boolean triggered = false;
+
+	public EarlyTermination(JKindResult result, Predicate<JKindResult> condition, ICancellationMonitor monitor) {
+		this.result = result;
+		this.condition = condition;
+		this.monitor = monitor;
+	}
+
+	public EarlyTermination(JKindResult result, Predicate<JKindResult> condition) {
+		this(result, condition, new ApiUtil.NullCancellationMonitor());
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return monitor.isCanceled() || isTriggered();
+	}
+
+	/**
+	 * @return true if the analysis was stopped because the condition held,
+	 *         rather than by the wrapped monitor
+	 */
+	public boolean isTriggered() {
+		if (!triggered && condition.test(result)) {
+			triggered = true;
+		}
+		return triggered;
+	}
+
+	@Override
+	public void done() {
+		monitor.done();
+	}
+
+	/**
+	 * Holds once any property is shown invalid
+	 */
+	public static Predicate<JKindResult> anyInvalid() {
+		return countAtLeast(Status.INVALID, 1);
+	}
+
+	/**
+	 * Holds once the named property has a final status
+	 */
+	public static Predicate<JKindResult> propertyDecided(String name) {
+		return result -> {
+			PropertyResult pr = result.getPropertyResult(name);
+			return pr != null && isDecided(pr.getStatus());
+		};
+	}
+
+	/**
+	 * Holds once at least n properties are valid
+	 */
+	public static Predicate<JKindResult> validCount(int n) {
+		return countAtLeast(Status.VALID, n);
+	}
+
+	/**
+	 * Holds once at least n properties have the given status
+	 */
+	public static Predicate<JKindResult> countAtLeast(Status status, int n) {
+		return result -> result.getMultiStatus().getCount(status) >= n;
+	}
+
+	/**
+	 * Holds once every one of the named properties has a final status
+	 */
+	public static Predicate<JKindResult> allDecided(String... names) {
+		List<String> list = Arrays.asList(names);
+		return result -> list.stream().allMatch(name -> propertyDecided(name).test(result));
+	}
+
+	private static boolean isDecided(Status status) {
+		if (status == null) {
+			return false;
+		}
+
+		switch (status) {
+		case VALID:
+		case VALID_REFINED:
+		case INVALID:
+		case INCONSISTENT:
+		case UNKNOWN:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
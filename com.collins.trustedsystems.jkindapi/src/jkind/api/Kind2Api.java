@@ -2,17 +2,24 @@ package jkind.api;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import jkind.JKindException;
+import jkind.SolverOption;
 import jkind.api.ApiUtil.ICancellationMonitor;
 import jkind.api.results.JKindResult;
+import jkind.api.transforms.CommonSubexpressionEliminator;
+import jkind.api.transforms.ConeOfInfluenceSlicer;
+import jkind.api.transforms.LustreSimplifier;
 import jkind.api.workarounds.WorkaroundKind2ForwardReference;
-import jkind.api.xml.XmlParseThread;
+import jkind.api.xml.MultiplexedXmlReader;
+import jkind.api.xml.OutputRecorder;
 import jkind.lustre.Program;
 import jkind.lustre.visitors.Kind2ArraysPrettyPrintVisitor;
 
@@ -22,6 +29,78 @@ import jkind.lustre.visitors.Kind2ArraysPrettyPrintVisitor;
 public class Kind2Api extends KindApi {
 	public static final String KIND2 = "kind2";
 	private static final long POLL_INTERVAL = 100;
+	protected String recordFileName;
+	protected Predicate<JKindResult> stopCondition;
+	protected SolverOption solver;
+	protected boolean slicing = true;
+	protected boolean simplification = false;
+	protected int sharingMinSize = 0;
+
+	/**
+	 * Record the raw output of each run to a file for later use with
+	 * {@link ReplayApi}
+	 *
+	 * @param fileName
+	 *            File to write the compressed recording to
+	 */
+	public void setRecordFile(String fileName) {
+		this.recordFileName = fileName;
+	}
+
+	/**
+	 * Stop the solver as soon as a condition over the live results holds, for
+	 * example {@link EarlyTermination#anyInvalid()}. Properties which are still
+	 * running at that point are marked CANCELED.
+	 *
+	 * @param condition
+	 *            Condition to check while the solver runs, or null to run to
+	 *            completion
+	 */
+	public void setStopCondition(Predicate<JKindResult> condition) {
+		this.stopCondition = condition;
+	}
+
+	/**
+	 * Send Lustre programs as they are, instead of removing the parts which
+	 * cannot affect the properties
+	 */
+	public void disableSlicing() {
+		this.slicing = false;
+	}
+
+	/**
+	 * Fold constants, simplify expressions, and inline trivial locals before
+	 * sending Lustre programs
+	 */
+	public void enableSimplification() {
+		this.simplification = true;
+	}
+
+	/**
+	 * Replace repeated subexpressions by shared locals before sending Lustre
+	 * programs
+	 *
+	 * @param minSize
+	 *            Smallest number of AST nodes in a subexpression worth
+	 *            sharing, or 0 to disable sharing
+	 */
+	public void setSubexpressionSharing(int minSize) {
+		this.sharingMinSize = minSize;
+	}
+
+	/**
+	 * Set the SMT solver used by Kind 2
+	 *
+	 * @param solver
+	 *            Any solver other than SMTInterpol, or null for the Kind 2
+	 *            default
+	 */
+	public void setSolver(SolverOption solver) {
+		if (solver == SolverOption.SMTINTERPOL) {
+			throw new JKindException("Kind 2 does not support " + solver);
+		}
+		this.solver = solver;
+	}
 
 	/**
 	 * Run Kind on a Lustre program
@@ -36,6 +115,15 @@ public class Kind2Api extends KindApi {
 	 */
 	@Override
 	public void execute(Program program, JKindResult result, ICancellationMonitor monitor) {
+		if (simplification) {
+			program = LustreSimplifier.program(program);
+		}
+		if (slicing) {
+			program = ConeOfInfluenceSlicer.program(program);
+		}
+		if (sharingMinSize > 0) {
+			program = CommonSubexpressionEliminator.program(program, sharingMinSize);
+		}
 		program = WorkaroundKind2ForwardReference.program(program);
 		Kind2ArraysPrettyPrintVisitor kind2Printer = new Kind2ArraysPrettyPrintVisitor();
 		program.accept(kind2Printer);
@@ -103,44 +191,69 @@ public class Kind2Api extends KindApi {
 
 	private void callKind2(File lustreFile, JKindResult result, ICancellationMonitor monitor)
 			throws IOException, InterruptedException {
+		if (stopCondition != null) {
+			monitor = new EarlyTermination(result, stopCondition, monitor);
+		}
 		ProcessBuilder builder = getKind2ProcessBuilder(lustreFile);
 		debug.println("Kind 2 command: " + ApiUtil.getQuotedCommand(builder.command()));
 		Process process = null;
-		XmlParseThread parseThread = null;
+		MultiplexedXmlReader.Source output = null;
+		OutputRecorder recorder = null;
 		int code = 0;
+		boolean canceled = false;
 
 		try {
 			result.start();
 			process = builder.start();
-			parseThread = new XmlParseThread(process.getInputStream(), result, Backend.KIND2);
-			parseThread.start();
-			while (!monitor.isCanceled() && parseThread.isAlive()) {
-				sleep(POLL_INTERVAL);
+			InputStream stream = process.getInputStream();
+			if (recordFileName != null) {
+				recorder = new OutputRecorder(new File(recordFileName), Backend.KIND2);
+				stream = recorder.wrap(stream);
+			}
+			output = MultiplexedXmlReader.getDefault().register(process, stream, result, Backend.KIND2);
+			/*
+			 * Cancellation is decided once here, since a stop condition may
+			 * also hold after the backend has finished by itself
+			 */
+			boolean consumed = false;
+			while (!consumed) {
+				if (monitor.isCanceled()) {
+					canceled = true;
+					break;
+				}
+				consumed = output.join(POLL_INTERVAL);
 			}
 		} finally {
 			if (process != null) {
-				process.destroy();
+				ProcessUtil.destroyTree(process);
 				code = process.waitFor();
 			}
 
-			if (parseThread != null) {
-				parseThread.join();
+			if (output != null) {
+				output.join();
+			}
+
+			if (recorder != null) {
+				try {
+					recorder.close();
+				} catch (IOException e) {
+				}
 			}
 
-			if (monitor.isCanceled()) {
+			if (canceled) {
 				result.cancel();
 			} else {
 				result.done();
 			}
 			monitor.done();
 
-			if (!Arrays.asList(0, 10, 20).contains(code) && !monitor.isCanceled()) {
+			if (!Arrays.asList(0, 10, 20).contains(code) && !canceled) {
 				throw new JKindException("Abnormal termination, exit code " + code);
 			}
 		}
 
-		if (parseThread.getThrowable() != null) {
-			throw new JKindException("Error parsing XML", parseThread.getThrowable());
+		if (output.getThrowable() != null) {
+			throw new JKindException("Error parsing XML", output.getThrowable());
 		}
 	}
 
@@ -163,9 +276,26 @@ public class Kind2Api extends KindApi {
 			args.add("--timeout_wall");
 			args.add(timeout.toString());
 		}
+		if (solver != null) {
+			args.add("--smt_solver");
+			args.add(getSolverName(solver));
+		}
 		return args;
 	}
 
+	private static String getSolverName(SolverOption solver) {
+		switch (solver) {
+		case YICES:
+			return "Yices";
+		case YICES2:
+			return "Yices2";
+		case MATHSAT:
+			return "MathSAT";
+		default:
+			return solver.name();
+		}
+	}
+
 	protected void sleep(long interval) {
 		try {
 			Thread.sleep(interval);
@@ -2,6 +2,7 @@ package jkind.api;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
@@ -14,10 +15,14 @@ import jkind.JKindException;
 import jkind.api.ApiUtil.ICancellationMonitor;
 import jkind.api.results.JKindResult;
 import jkind.api.xml.Kind2WebInputStream;
+import jkind.api.xml.OutputRecorder;
 import jkind.api.xml.XmlParseThread;
 
 /**
  * The web-based interface to Kind2.
+ *
+ * Jobs are polled on the server, so each run spends most of its time
+ * blocked. Enable {@link VirtualThreads} to run many jobs concurrently.
  */
 public class Kind2WebApi extends Kind2Api {
 	private static final long POLL_INTERVAL = 100;
@@ -86,24 +91,47 @@ public class Kind2WebApi extends Kind2Api {
 	 */
 	@Override
 	public void execute(String program, JKindResult result, ICancellationMonitor monitor) {
+		if (stopCondition != null) {
+			monitor = new EarlyTermination(result, stopCondition, monitor);
+		}
 		XmlParseThread parseThread = null;
+		Thread reader = null;
 
 		debug.println("Kind 2 URI: " + uri);
 		debug.println("Kind 2 arguments: " + String.join(" ", getArgs()));
+		OutputRecorder recorder = null;
+		boolean canceled = false;
 		try (Kind2WebInputStream stream = new Kind2WebInputStream(uri, getArgs(), program)) {
 			result.start();
-			parseThread = new XmlParseThread(stream, result, Backend.KIND2);
-			parseThread.start();
-			while (!monitor.isCanceled() && parseThread.isAlive()) {
-				sleep(POLL_INTERVAL);
+			InputStream input = stream;
+			if (recordFileName != null) {
+				recorder = new OutputRecorder(new File(recordFileName), Backend.KIND2);
+				input = recorder.wrap(stream);
 			}
+			parseThread = new XmlParseThread(input, result, Backend.KIND2);
+			reader = VirtualThreads.start("XmlParseThread", parseThread);
+			VirtualThreads.join(reader, monitor, POLL_INTERVAL);
+			/*
+			 * Cancellation is decided once here, since a stop condition may
+			 * also hold after the output has been read completely
+			 */
+			canceled = reader.isAlive();
+		} catch (IOException e) {
+			throw new JKindException("Error recording output to " + recordFileName, e);
 		} finally {
 			try {
-				parseThread.join();
+				reader.join();
 			} catch (Exception e) {
 			}
 
-			if (monitor.isCanceled()) {
+			if (recorder != null) {
+				try {
+					recorder.close();
+				} catch (IOException e) {
+				}
+			}
+
+			if (canceled) {
 				result.cancel();
 			} else {
 				result.done();
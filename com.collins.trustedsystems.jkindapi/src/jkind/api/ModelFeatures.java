@@ -0,0 +1,134 @@
+package jkind.api;
+
+import jkind.lustre.ArrayExpr;
+import jkind.lustre.ArrayType;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.Expr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.RealExpr;
+import jkind.lustre.TypeDef;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.VarDecl;
+import jkind.lustre.visitors.AstIterVisitor;
+import jkind.lustre.visitors.TypeIterVisitor;
+
+/**
+ * Coarse features of a Lustre program which affect how well each SMT solver
+ * handles it
+ */
+public class ModelFeatures {
+	public final int nodes;
+	public final int properties;
+	public final boolean arrays;
+	public final boolean reals;
+	public final boolean nonlinear;
+
+	public ModelFeatures(int nodes, int properties, boolean arrays, boolean reals, boolean nonlinear) {
+		this.nodes = nodes;
+		this.properties = properties;
+		this.arrays = arrays;
+		this.reals = reals;
+		this.nonlinear = nonlinear;
+	}
+
+	public static ModelFeatures of(Program program) {
+		FeatureVisitor visitor = new FeatureVisitor();
+		program.accept(visitor);
+
+		Node main = program.getMainNode();
+		int properties = main == null ? 0 : main.properties.size();
+		return new ModelFeatures(program.nodes.size(), properties, visitor.types.arrays || visitor.arrays,
+				visitor.types.reals || visitor.reals, visitor.nonlinear);
+	}
+
+	/**
+	 * @return true if both programs have the same kinds of types and
+	 *         arithmetic
+	 */
+	public boolean hasSameTheories(ModelFeatures other) {
+		return arrays == other.arrays && reals == other.reals && nonlinear == other.nonlinear;
+	}
+
+	@Override
+	public String toString() {
+		return nodes + " nodes, " + properties + " properties" + (arrays ? ", arrays" : "") + (reals ? ", reals" : "")
+				+ (nonlinear ? ", nonlinear" : "");
+	}
+
+	private static class FeatureVisitor extends AstIterVisitor {
+		private final TypeFeatureVisitor types = new TypeFeatureVisitor();
+		private boolean arrays = false;
+		private boolean reals = false;
+		private boolean nonlinear = false;
+
+		@Override
+		public Void visit(ArrayExpr e) {
+			arrays = true;
+			return super.visit(e);
+		}
+
+		@Override
+		public Void visit(RealExpr e) {
+			reals = true;
+			return null;
+		}
+
+		@Override
+		public Void visit(BinaryExpr e) {
+			switch (e.op) {
+			case MULTIPLY:
+			case DIVIDE:
+			case INT_DIVIDE:
+			case MODULUS:
+				if (!isLiteral(e.left) && !isLiteral(e.right)) {
+					nonlinear = true;
+				}
+				break;
+			default:
+				break;
+			}
+			return super.visit(e);
+		}
+
+		@Override
+		public Void visit(TypeDef e) {
+			e.type.accept(types);
+			return null;
+		}
+
+		@Override
+		public Void visit(VarDecl e) {
+			e.type.accept(types);
+			return null;
+		}
+
+		private static boolean isLiteral(Expr e) {
+			if (e instanceof UnaryExpr) {
+				return isLiteral(((UnaryExpr) e).expr);
+			}
+			return e instanceof IntExpr || e instanceof RealExpr;
+		}
+	}
+
+	private static class TypeFeatureVisitor extends TypeIterVisitor {
+		private boolean arrays = false;
+		private boolean reals = false;
+
+		@Override
+		public Void visit(ArrayType e) {
+			arrays = true;
+			return super.visit(e);
+		}
+
+		@Override
+		public Void visit(NamedType e) {
+			if (e.name.equals("real")) {
+				reals = true;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package jkind.api;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ProcessUtil {
+	private static final Method DESCENDANTS = findMethod(Process.class, "descendants");
+	private static final Method HANDLE_DESTROY = findMethod(getProcessHandleClass(), "destroy");
+
+	/**
+	 * Destroy a process along with any processes it started, such as the SMT
+	 * solvers run by Kind 2. On Java 8, where the descendants of a process
+	 * cannot be found, only the process itself is destroyed.
+	 *
+	 * @param process
+	 *            Process to destroy
+	 */
+	public static void destroyTree(Process process) {
+		List<Object> descendants = getDescendants(process);
+		process.destroy();
+		for (Object handle : descendants) {
+			try {
+				HANDLE_DESTROY.invoke(handle);
+			} catch (ReflectiveOperationException e) {
+			}
+		}
+	}
+
+	private static List<Object> getDescendants(Process process) {
+		List<Object> result = new ArrayList<>();
+		if (DESCENDANTS == null || HANDLE_DESTROY == null) {
+			return result;
+		}
+
+		try {
+			Stream<?> stream = (Stream<?>) DESCENDANTS.invoke(process);
+			stream.forEach(result::add);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+		}
+		return result;
+	}
+
+	private static Class<?> getProcessHandleClass() {
+		try {
+			return Class.forName("java.lang.ProcessHandle");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(Class<?> clazz, String name) {
+		if (clazz == null) {
+			return null;
+		}
+		try {
+			return clazz.getMethod(name);
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package jkind.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import jkind.JKindException;
+import jkind.lustre.Program;
+
+/**
+ * Identifies a Lustre program by a hash of its printed form, which ignores
+ * comments and formatting
+ */
+public class ProgramHash {
+	private static final int LENGTH = 12;
+
+	public static String of(Program program) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(program.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < LENGTH; i++) {
+				text.append(String.format("%02x", hash[i]));
+			}
+			return text.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new JKindException("Unable to hash program", e);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package jkind.api;
+
+import static jkind.api.ResultForwarding.isRemaining;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.builders.ProgramBuilder;
+
+/**
+ * Runs a backend on a program while allowing individual properties to be
+ * canceled. Canceling a property stops the current solver run and restarts it
+ * on a copy of the program which checks only the properties that are still
+ * wanted and undecided. Results that were already decided are kept.
+ *
+ * The result should contain one property result for each property of the
+ * main node, named as in the program. Properties in the result which are
+ * already decided, for example when resuming from a
+ * {@link jkind.api.results.ResultJournal}, are not checked again.
+ */
+public class PropertyCancellationRunner {
+	private final KindApi api;
+	private final Program program;
+	private final JKindResult result;
+	private final Set<String> dropped = ConcurrentHashMap.newKeySet();
+	private volatile boolean restart = false;
+
+	public PropertyCancellationRunner(KindApi api, Program program, JKindResult result) {
+		this.api = api;
+		this.program = program;
+		this.result = result;
+	}
+
+	/**
+	 * Stop checking a property. If it has not been decided it is marked
+	 * CANCELED and the solver is restarted without it.
+	 *
+	 * @param name
+	 *            Name of the property in the program
+	 */
+	public void cancel(String name) {
+		PropertyResult pr = result.getPropertyResult(name);
+		if (pr == null || !isRemaining(pr)) {
+			return;
+		}
+
+		dropped.add(name);
+		pr.cancel();
+		restart = true;
+	}
+
+	public void cancel(PropertyResult pr) {
+		cancel(pr.getName());
+	}
+
+	/**
+	 * Run the backend until every property is decided or canceled
+	 *
+	 * @param monitor
+	 *            Used to check for cancellation of the whole run
+	 * @throws jkind.JKindException
+	 */
+	public void execute(ICancellationMonitor monitor) {
+		ICancellationMonitor attemptMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return restart || monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+
+		try {
+			for (PropertyResult pr : result.getPropertyResults()) {
+				if (isRemaining(pr)) {
+					pr.start();
+				}
+			}
+			while (!monitor.isCanceled()) {
+				// Cleared first, so that a cancel after the properties are listed restarts the attempt
+				restart = false;
+				List<String> remaining = getRemaining();
+				if (remaining.isEmpty()) {
+					break;
+				}
+
+				JKindResult attempt = new JKindResult(result.getName(), remaining);
+				forwardResults(attempt);
+				api.execute(restrictProperties(program, remaining), attempt, attemptMonitor);
+				if (!restart) {
+					break;
+				}
+			}
+		} finally {
+			if (monitor.isCanceled()) {
+				result.cancel();
+			} else {
+				result.done();
+			}
+			monitor.done();
+		}
+	}
+
+	private List<String> getRemaining() {
+		List<String> remaining = new ArrayList<>();
+		for (String property : program.getMainNode().properties) {
+			PropertyResult pr = result.getPropertyResult(property);
+			if (pr != null && isRemaining(pr) && !dropped.contains(property)) {
+				remaining.add(property);
+			}
+		}
+		return remaining;
+	}
+
+	private void forwardResults(JKindResult attempt) {
+		for (PropertyResult from : attempt.getPropertyResults()) {
+			List<PropertyResult> to = Collections.singletonList(result.getPropertyResult(from.getName()));
+			ResultForwarding.forward(from, () -> dropped.contains(from.getName()) ? Collections.emptyList() : to,
+					PropertyResult::setProperty);
+		}
+	}
+
+	/**
+	 * Copy a program, keeping only the given properties on its main node
+	 */
+	public static Program restrictProperties(Program program, Collection<String> properties) {
+		Node main = program.getMainNode();
+		Node restricted = new NodeBuilder(main).clearProperties().addProperties(properties).build();
+
+		ProgramBuilder builder = new ProgramBuilder(program).clearNodes();
+		for (Node node : program.nodes) {
+			builder.addNode(node == main ? restricted : node);
+		}
+		return builder.build();
+	}
+}
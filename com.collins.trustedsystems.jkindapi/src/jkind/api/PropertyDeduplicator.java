@@ -0,0 +1,399 @@
+package jkind.api;
+
+import static jkind.api.ResultForwarding.isRemaining;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.TupleExpr;
+import jkind.lustre.VarDecl;
+import jkind.lustre.values.Value;
+import jkind.lustre.visitors.ExprMapVisitor;
+import jkind.results.Counterexample;
+import jkind.results.FunctionTable;
+import jkind.results.InconsistentProperty;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.Signal;
+import jkind.results.UnknownProperty;
+import jkind.results.ValidProperty;
+
+/**
+ * Checks each group of equivalent properties once. Two properties of the main
+ * node are equivalent when their definitions, together with everything they
+ * depend on in the main node, are equal up to the names of locals and
+ * outputs and the order of the arguments of commutative operators. Inputs,
+ * constants, and called nodes must be the same.
+ *
+ * Only the first property of each group is sent to the backend. When it is
+ * decided its result is copied to the others, with counterexample signals of
+ * its cone of influence also given the names of the corresponding variables
+ * of each copy.
+ */
+public class PropertyDeduplicator {
+	private final KindApi api;
+
+	public PropertyDeduplicator(KindApi api) {
+		this.api = api;
+	}
+
+	/**
+	 * Run the backend on one property of each group of equivalent properties
+	 *
+	 * @param program
+	 *            Lustre program
+	 * @param result
+	 *            Place to store results as they come in, with one property
+	 *            result for each property of the main node
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public void execute(Program program, JKindResult result, ICancellationMonitor monitor) {
+		Map<String, Cone> cones = getCones(program);
+		Map<String, List<String>> groups = getGroups(cones);
+		api.apiDebug("Deduplication: checking " + groups.size() + " of " + cones.size() + " properties");
+
+		ICancellationMonitor runMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+
+		try {
+			for (PropertyResult pr : result.getPropertyResults()) {
+				if (isRemaining(pr)) {
+					pr.start();
+				}
+			}
+
+			List<String> representatives = new ArrayList<>();
+			for (String representative : groups.keySet()) {
+				if (isGroupRemaining(result, groups.get(representative))) {
+					representatives.add(representative);
+				}
+			}
+			if (!representatives.isEmpty()) {
+				JKindResult run = new JKindResult(result.getName(), representatives);
+				for (String representative : representatives) {
+					forwardResults(run.getPropertyResult(representative), result, groups.get(representative), cones);
+				}
+				api.execute(PropertyCancellationRunner.restrictProperties(program, representatives), run, runMonitor);
+			}
+		} finally {
+			if (monitor.isCanceled()) {
+				result.cancel();
+			} else {
+				result.done();
+			}
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Group the properties of the main node by equivalence
+	 *
+	 * @return Map from the first property of each group, in program order, to
+	 *         all properties of the group
+	 */
+	public static Map<String, List<String>> getGroups(Program program) {
+		return getGroups(getCones(program));
+	}
+
+	private static Map<String, List<String>> getGroups(Map<String, Cone> cones) {
+		Map<String, String> representatives = new HashMap<>();
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		for (Cone cone : cones.values()) {
+			String representative = representatives.computeIfAbsent(cone.form, form -> cone.property);
+			groups.computeIfAbsent(representative, k -> new ArrayList<>()).add(cone.property);
+		}
+		return groups;
+	}
+
+	private static boolean isGroupRemaining(JKindResult result, List<String> group) {
+		for (String property : group) {
+			PropertyResult pr = result.getPropertyResult(property);
+			if (pr != null && isRemaining(pr)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void forwardResults(PropertyResult from, JKindResult result, List<String> group,
+			Map<String, Cone> cones) {
+		Cone source = cones.get(from.getName());
+		ResultForwarding.forward(from, () -> {
+			List<PropertyResult> targets = new ArrayList<>();
+			for (String property : group) {
+				PropertyResult to = result.getPropertyResult(property);
+				if (to != null && isRemaining(to)) {
+					targets.add(to);
+				}
+			}
+			return targets;
+		}, (to, property) -> to.setProperty(
+				rename(property, to.getName(), source.getRenaming(cones.get(to.getName())))));
+	}
+
+	private static Property rename(Property property, String name, Map<String, String> renaming) {
+		if (property.getName().equals(name)) {
+			return property;
+		} else if (property instanceof ValidProperty) {
+			ValidProperty vp = (ValidProperty) property;
+			return new ValidProperty(name, vp.getSource(), vp.getK(), vp.getRuntime(), vp.getInvariants(),
+					vp.getIvc(), vp.getInvariantSets(), vp.getIvcSets(), vp.getMivcTimedOut());
+		} else if (property instanceof InvalidProperty) {
+			InvalidProperty ip = (InvalidProperty) property;
+			return new InvalidProperty(name, ip.getSource(), rename(ip.getCounterexample(), renaming),
+					ip.getConflicts(), ip.getRuntime(), ip.getReport());
+		} else if (property instanceof UnknownProperty) {
+			UnknownProperty up = (UnknownProperty) property;
+			return new UnknownProperty(name, up.getTrueFor(), rename(up.getInductiveCounterexample(), renaming),
+					up.getRuntime());
+		} else if (property instanceof InconsistentProperty) {
+			InconsistentProperty ip = (InconsistentProperty) property;
+			return new InconsistentProperty(name, ip.getSource(), ip.getK(), ip.getRuntime());
+		} else {
+			return property;
+		}
+	}
+
+	private static Counterexample rename(Counterexample cex, Map<String, String> renaming) {
+		if (cex == null) {
+			return null;
+		}
+
+		Counterexample result = new Counterexample(cex.getLength());
+		for (Signal<Value> signal : cex.getSignals()) {
+			result.addSignal(signal);
+		}
+		for (Signal<Value> signal : cex.getSignals()) {
+			String name = renaming.get(signal.getName());
+			if (name != null && cex.getSignal(name) == null) {
+				result.addSignal(signal.rename(name));
+			}
+		}
+		for (FunctionTable table : cex.getFunctionTables()) {
+			result.addFunctionTable(table);
+		}
+		return result;
+	}
+
+	private static Map<String, Cone> getCones(Program program) {
+		Node main = program.getMainNode();
+		Map<String, Expr> definitions = new HashMap<>();
+		for (Equation equation : main.equations) {
+			if (equation.lhs.size() == 1) {
+				definitions.put(equation.lhs.get(0).id, equation.expr);
+			} else {
+				// Each variable of a tuple equation is defined by its position
+				for (int i = 0; i < equation.lhs.size(); i++) {
+					List<Expr> projection = new ArrayList<>();
+					projection.add(new IntExpr(i));
+					projection.add(equation.expr);
+					definitions.put(equation.lhs.get(i).id, new TupleExpr(projection));
+				}
+			}
+		}
+		Map<String, String> types = new HashMap<>();
+		for (VarDecl decl : main.outputs) {
+			types.put(decl.id, decl.type.toString());
+		}
+		for (VarDecl decl : main.locals) {
+			types.put(decl.id, decl.type.toString());
+		}
+
+		Map<String, Cone> cones = new LinkedHashMap<>();
+		for (String property : main.properties) {
+			cones.put(property, new Cone(property, definitions, types));
+		}
+		return cones;
+	}
+
+	/**
+	 * Canonical form of a property together with everything it depends on.
+	 * Locals and outputs are numbered in the order they are first reached,
+	 * and arguments of commutative operators are ordered by a form which does
+	 * not depend on names of locals and outputs. Equal canonical forms imply
+	 * equivalent properties, though not every pair of equivalent properties
+	 * gets equal forms.
+	 */
+	private static class Cone {
+		private final String property;
+		private final Map<String, Expr> definitions;
+		private final Map<String, String> types;
+		private final List<String> variables = new ArrayList<>();
+		private final Map<String, Integer> numbers = new HashMap<>();
+		private final Deque<String> work = new ArrayDeque<>();
+		private final Map<Expr, String> shapes = new IdentityHashMap<>();
+		private final String form;
+
+		public Cone(String property, Map<String, Expr> definitions, Map<String, String> types) {
+			this.property = property;
+			this.definitions = definitions;
+			this.types = types;
+
+			Canonicalizer canonicalizer = new Canonicalizer();
+			StringBuilder builder = new StringBuilder();
+			builder.append(new IdExpr(property).accept(canonicalizer));
+			while (!work.isEmpty()) {
+				String variable = work.removeFirst();
+				builder.append("; #").append(numbers.get(variable)).append(" : ").append(types.get(variable));
+				builder.append(" = ").append(definitions.get(variable).accept(canonicalizer));
+			}
+			this.form = builder.toString();
+		}
+
+		/**
+		 * Map from the variables of this cone to the corresponding variables
+		 * of an equivalent cone
+		 */
+		public Map<String, String> getRenaming(Cone other) {
+			Map<String, String> renaming = new HashMap<>();
+			for (int i = 0; i < variables.size(); i++) {
+				renaming.put(variables.get(i), other.variables.get(i));
+			}
+			return renaming;
+		}
+
+		private int getNumber(String variable) {
+			Integer number = numbers.get(variable);
+			if (number == null) {
+				number = variables.size();
+				numbers.put(variable, number);
+				variables.add(variable);
+				work.addLast(variable);
+			}
+			return number;
+		}
+
+		private String getShape(Expr e) {
+			return shapes.computeIfAbsent(e, k -> k.accept(new Shape()).toString());
+		}
+
+		/**
+		 * Orders the arguments of commutative operators by their shape
+		 */
+		private abstract class Normalizer extends ExprMapVisitor {
+			@Override
+			public Expr visit(BinaryExpr e) {
+				if (!isCommutative(e.op)) {
+					return super.visit(e);
+				}
+
+				List<Expr> operands = new ArrayList<>();
+				if (isAssociative(e.op)) {
+					flatten(e, e.op, operands);
+				} else {
+					operands.add(e.left);
+					operands.add(e.right);
+				}
+				operands.sort(Comparator.comparing(Cone.this::getShape));
+
+				Expr result = operands.get(0).accept(this);
+				for (int i = 1; i < operands.size(); i++) {
+					result = new BinaryExpr(result, e.op, operands.get(i).accept(this));
+				}
+				return result;
+			}
+		}
+
+		/**
+		 * Follow variables defined as another variable of the same type
+		 */
+		private String resolve(String variable) {
+			Set<String> seen = new HashSet<>();
+			while (seen.add(variable) && definitions.get(variable) instanceof IdExpr) {
+				String alias = ((IdExpr) definitions.get(variable)).id;
+				if (!definitions.containsKey(alias) || !types.get(alias).equals(types.get(variable))) {
+					break;
+				}
+				variable = alias;
+			}
+			return variable;
+		}
+
+		private class Canonicalizer extends Normalizer {
+			@Override
+			public Expr visit(IdExpr e) {
+				if (definitions.containsKey(e.id)) {
+					return new IdExpr("#" + getNumber(resolve(e.id)));
+				}
+				return e;
+			}
+		}
+
+		/**
+		 * Replaces locals and outputs by a placeholder, giving a form which
+		 * does not depend on their names or numbering
+		 */
+		private class Shape extends Normalizer {
+			@Override
+			public Expr visit(IdExpr e) {
+				if (definitions.containsKey(e.id)) {
+					return new IdExpr("#");
+				}
+				return e;
+			}
+		}
+	}
+
+	private static void flatten(Expr e, BinaryOp op, List<Expr> operands) {
+		if (e instanceof BinaryExpr && ((BinaryExpr) e).op == op) {
+			BinaryExpr be = (BinaryExpr) e;
+			flatten(be.left, op, operands);
+			flatten(be.right, op, operands);
+		} else {
+			operands.add(e);
+		}
+	}
+
+	private static boolean isCommutative(BinaryOp op) {
+		switch (op) {
+		case EQUAL:
+		case NOTEQUAL:
+			return true;
+		default:
+			return isAssociative(op);
+		}
+	}
+
+	private static boolean isAssociative(BinaryOp op) {
+		switch (op) {
+		case AND:
+		case OR:
+		case XOR:
+		case PLUS:
+		case MULTIPLY:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package jkind.api;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import jkind.JKindException;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.xml.OutputRecorder;
+import jkind.api.xml.ReplayInputStream;
+import jkind.api.xml.XmlParseThread;
+import jkind.lustre.Program;
+
+/**
+ * A backend which replays previously recorded JKind, Kind 2, or Sally output
+ * instead of running a solver. Useful for measuring the cost of parsing,
+ * result listeners, and user interfaces in isolation.
+ *
+ * Recordings are made by calling setRecordFile on {@link Kind2Api} or
+ * {@link SallyApi}, or with {@link OutputRecorder} directly. The program
+ * passed to execute is ignored.
+ */
+public class ReplayApi extends KindApi {
+	public static final double ORIGINAL_SPEED = 1.0;
+	public static final double FAST_AS_POSSIBLE = 0.0;
+	private static final long POLL_INTERVAL = 100;
+
+	private final File recording;
+	private double speed = ORIGINAL_SPEED;
+
+	public ReplayApi(File recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Set how fast the recording is played back relative to the original run,
+	 * for example 2.0 plays back twice as fast. Use {@link #FAST_AS_POSSIBLE}
+	 * to ignore the recorded timing entirely.
+	 */
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	/**
+	 * Replay the recording
+	 *
+	 * @param program
+	 *            Ignored
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	@Override
+	public void execute(Program program, JKindResult result, ICancellationMonitor monitor) {
+		replay(result, monitor);
+	}
+
+	/**
+	 * Replay the recording
+	 *
+	 * @param program
+	 *            Ignored
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	@Override
+	public void execute(String program, JKindResult result, ICancellationMonitor monitor) {
+		replay(result, monitor);
+	}
+
+	/**
+	 * Replay the recording
+	 *
+	 * @param lustreFile
+	 *            Ignored
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	@Override
+	public void execute(File lustreFile, JKindResult result, ICancellationMonitor monitor) {
+		replay(result, monitor);
+	}
+
+	/**
+	 * Replay the recording
+	 *
+	 * @param lustreFile
+	 *            Ignored
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 * @deprecated To be removed in 5.0.  Use {@link jkind.api.eclipse.ReplayApi.execute()} instead.
+	 */
+	@Deprecated
+	@Override
+	public void execute(File lustreFile, JKindResult result, IProgressMonitor monitor) {
+		execute(lustreFile, result, new jkind.api.eclipse.ApiUtil.CancellationMonitor(monitor));
+	}
+
+	private void replay(JKindResult result, ICancellationMonitor monitor) {
+		debug.println("Replaying", recording);
+		XmlParseThread parseThread = null;
+		Thread reader = null;
+
+		try (ReplayInputStream stream = new ReplayInputStream(recording, speed)) {
+			result.start();
+			parseThread = new XmlParseThread(stream, result, stream.getBackend());
+			reader = VirtualThreads.start("XmlParseThread", parseThread);
+			VirtualThreads.join(reader, monitor, POLL_INTERVAL);
+			if (reader.isAlive()) {
+				reader.interrupt();
+				reader.join();
+			}
+		} catch (IOException e) {
+			throw new JKindException("Error reading recording " + recording, e);
+		} catch (InterruptedException e) {
+		} finally {
+			if (monitor.isCanceled()) {
+				result.cancel();
+			} else {
+				result.done();
+			}
+			monitor.done();
+		}
+
+		if (parseThread.getThrowable() != null && !monitor.isCanceled()) {
+			throw new JKindException("Error parsing XML", parseThread.getThrowable());
+		}
+	}
+
+	@Override
+	public String checkAvailable() throws Exception {
+		return "Replaying " + ReplayInputStream.readBackend(recording) + " output from " + recording;
+	}
+}
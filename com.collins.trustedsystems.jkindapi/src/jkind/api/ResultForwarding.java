@@ -0,0 +1,57 @@
+package jkind.api;
+
+import java.beans.PropertyChangeEvent;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import jkind.api.results.PropertyResult;
+import jkind.api.results.Status;
+import jkind.results.Property;
+
+/**
+ * Copies the results of a separate run back to the results of the caller,
+ * for runners which split an analysis into several backend runs.
+ */
+class ResultForwarding {
+	/**
+	 * @return whether the property is still being analyzed
+	 */
+	static boolean isRemaining(PropertyResult pr) {
+		return pr.getStatus() == Status.WORKING || pr.getStatus() == Status.WAITING;
+	}
+
+	/**
+	 * @return whether the property has a final result from the backend
+	 */
+	static boolean isDecided(PropertyResult pr) {
+		return pr.getProperty() != null && !isRemaining(pr) && pr.getStatus() != Status.CANCELED
+				&& pr.getStatus() != Status.ERROR;
+	}
+
+	/**
+	 * Forward the progress, elapsed time, and final result of a property as
+	 * they change
+	 *
+	 * @param from
+	 *            Result of the separate run
+	 * @param targets
+	 *            Gives the results to update on each change
+	 * @param decided
+	 *            Stores the final result in a target
+	 */
+	static void forward(PropertyResult from, Supplier<? extends Iterable<PropertyResult>> targets,
+			BiConsumer<PropertyResult, Property> decided) {
+		from.addPropertyChangeListener((PropertyChangeEvent event) -> {
+			for (PropertyResult to : targets.get()) {
+				if (event.getPropertyName().equals("status") && isDecided(from)) {
+					decided.accept(to, from.getProperty());
+				} else if (event.getPropertyName().equals("progress")) {
+					to.setBaseProgress(from.getBaseProgress());
+				} else if (event.getPropertyName().equals("elapased")) {
+					// Spelled as fired by PropertyResult.tick()
+					to.tick();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,159 @@
+package jkind.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jkind.JKindException;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.lustre.Program;
+
+/**
+ * Remembers how long earlier runs took, per model and per property, so that
+ * the runtime of a new run can be estimated.
+ *
+ * Models are identified by their {@link ProgramHash} and main node name.
+ * Runtimes are appended to a tab separated file.
+ */
+public class RuntimeHistory {
+	public static final long DEFAULT_ESTIMATE = 60_000;
+
+	private static final String MODEL = "model";
+	private static final String PROPERTY = "property";
+
+	private final File file;
+	private final Map<String, Average> byHash = new HashMap<>();
+	private final Map<String, Average> byMain = new HashMap<>();
+	private final Map<String, Average> byProperty = new HashMap<>();
+	private final List<Long> all = new ArrayList<>();
+
+	public RuntimeHistory(File file) {
+		this.file = file;
+		load();
+	}
+
+	/**
+	 * Estimate the runtime of a program in milliseconds. Uses earlier runs of
+	 * the identical program if there are any, then earlier runtimes of its
+	 * properties, then earlier runs with the same main node, and finally the
+	 * median runtime of all runs.
+	 */
+	public synchronized long estimate(Program program) {
+		Average exact = byHash.get(ProgramHash.of(program));
+		if (exact != null) {
+			return exact.get();
+		}
+
+		String main = program.getMainNode().id;
+		long longest = -1;
+		for (String property : program.getMainNode().properties) {
+			Average average = byProperty.get(getPropertyKey(main, property));
+			if (average != null) {
+				longest = Math.max(longest, average.get());
+			}
+		}
+		if (longest >= 0) {
+			return longest;
+		}
+
+		Average sameMain = byMain.get(main);
+		if (sameMain != null) {
+			return sameMain.get();
+		}
+
+		if (!all.isEmpty()) {
+			List<Long> sorted = new ArrayList<>(all);
+			Collections.sort(sorted);
+			return sorted.get(sorted.size() / 2);
+		}
+		return DEFAULT_ESTIMATE;
+	}
+
+	/**
+	 * Record a completed run
+	 *
+	 * @param program
+	 *            Lustre program which was run
+	 * @param result
+	 *            Results of the run, used for per-property runtimes
+	 * @param runtime
+	 *            Wall clock time of the run in milliseconds
+	 */
+	public synchronized void record(Program program, JKindResult result, long runtime) {
+		String hash = ProgramHash.of(program);
+		String main = program.getMainNode().id;
+
+		try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+			add(MODEL, hash, main, null, runtime);
+			out.println(String.join("\t", MODEL, hash, main, Long.toString(runtime)));
+			for (PropertyResult pr : result.getPropertyResults()) {
+				long elapsed = pr.getElapsed() * 1000L;
+				add(PROPERTY, hash, main, pr.getName(), elapsed);
+				out.println(String.join("\t", PROPERTY, hash, main, pr.getName(), Long.toString(elapsed)));
+			}
+		} catch (IOException e) {
+			throw new JKindException("Error writing runtime history to " + file, e);
+		}
+	}
+
+	private void add(String kind, String hash, String main, String property, long runtime) {
+		if (kind.equals(MODEL)) {
+			byHash.computeIfAbsent(hash, k -> new Average()).add(runtime);
+			byMain.computeIfAbsent(main, k -> new Average()).add(runtime);
+			all.add(runtime);
+		} else {
+			byProperty.computeIfAbsent(getPropertyKey(main, property), k -> new Average()).add(runtime);
+		}
+	}
+
+	private static String getPropertyKey(String main, String property) {
+		return main + "\t" + property;
+	}
+
+	private void load() {
+		if (!file.isFile()) {
+			return;
+		}
+
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] parts = line.split("\t");
+				try {
+					if (parts.length == 4 && parts[0].equals(MODEL)) {
+						add(MODEL, parts[1], parts[2], null, Long.parseLong(parts[3]));
+					} else if (parts.length == 5 && parts[0].equals(PROPERTY)) {
+						add(PROPERTY, parts[1], parts[2], parts[3], Long.parseLong(parts[4]));
+					}
+				} catch (NumberFormatException e) {
+					// Skip lines cut short by an earlier crash
+				}
+			}
+		} catch (IOException e) {
+			throw new JKindException("Error reading runtime history from " + file, e);
+		}
+	}
+
+	private static class Average {
+		private long sum = 0;
+		private int count = 0;
+
+		public void add(long value) {
+			sum += value;
+			count++;
+		}
+
+		public long get() {
+			return sum / count;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package jkind.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import jkind.JKindException;
+import jkind.SolverOption;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.api.results.Status;
+import jkind.lustre.Program;
+
+/**
+ * Chooses the SMT solver for a run based on how each solver performed on
+ * similar models in the past.
+ *
+ * Every run is appended to a history file with the {@link ModelFeatures} of
+ * the program, the solver, the runtime, and how many properties were
+ * decided. A new model gets the solver with the lowest average cost over
+ * earlier runs of the same backend on models with the same theories and a
+ * similar size. Solvers which have not yet been tried on such models are
+ * tried first, and now and then a random candidate is used so the history
+ * keeps up with changes.
+ *
+ * <pre>
+ * SolverSelector selector = new SolverSelector(history, Arrays.asList(SolverOption.Z3, SolverOption.YICES));
+ * selector.execute(api, program, result, monitor);
+ * </pre>
+ */
+public class SolverSelector {
+	public static final double DEFAULT_EXPLORATION = 0.1;
+	private static final double SIZE_RATIO = 4.0;
+	private static final double UNDECIDED_PENALTY = 4.0;
+
+	private final File history;
+	private final List<SolverOption> candidates;
+	private final List<Run> runs = new ArrayList<>();
+	private final Random random = new Random();
+	private double exploration = DEFAULT_EXPLORATION;
+
+	/**
+	 * @param history
+	 *            File used to store runtimes, created if needed
+	 * @param candidates
+	 *            Solvers installed and eligible for selection
+	 */
+	public SolverSelector(File history, List<SolverOption> candidates) {
+		this.history = history;
+		this.candidates = new ArrayList<>(candidates);
+		load();
+	}
+
+	/**
+	 * Set how often a random candidate is used instead of the best one
+	 *
+	 * @param exploration
+	 *            Probability between 0 and 1
+	 */
+	public void setExploration(double exploration) {
+		this.exploration = exploration;
+	}
+
+	/**
+	 * Run a backend on a program with the selected solver and record how it
+	 * performed. Backends without a solver option are run unchanged.
+	 *
+	 * @param api
+	 *            JKindApi or Kind2Api
+	 * @param program
+	 *            Lustre program
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public void execute(KindApi api, Program program, JKindResult result, ICancellationMonitor monitor) {
+		ModelFeatures features = ModelFeatures.of(program);
+		SolverOption solver = select(api, features);
+		long start = System.currentTimeMillis();
+
+		try {
+			api.execute(program, result, monitor);
+		} catch (JKindException e) {
+			if (solver != null && !monitor.isCanceled()) {
+				record(api, features, solver, System.currentTimeMillis() - start, 0, true);
+			}
+			throw e;
+		}
+
+		if (solver != null && !monitor.isCanceled()) {
+			int decided = (int) result.getPropertyResults().stream().filter(SolverSelector::isDecided).count();
+			record(api, features, solver, System.currentTimeMillis() - start, decided, false);
+		}
+	}
+
+	/**
+	 * Choose a solver for a program and set it on the api
+	 *
+	 * @return The chosen solver, or null if the api has no solver option
+	 */
+	public SolverOption select(KindApi api, ModelFeatures features) {
+		String backend = getBackend(api);
+		if (backend == null) {
+			return null;
+		}
+
+		SolverOption solver = select(backend, features);
+		api.apiDebug("Selected solver " + solver + " for " + features);
+		if (api instanceof JKindApi) {
+			((JKindApi) api).setSolver(solver);
+		} else {
+			((Kind2Api) api).setSolver(solver);
+		}
+		return solver;
+	}
+
+	private synchronized SolverOption select(String backend, ModelFeatures features) {
+		List<SolverOption> eligible = new ArrayList<>(candidates);
+		if (backend.equals("kind2")) {
+			eligible.remove(SolverOption.SMTINTERPOL);
+		}
+		if (eligible.isEmpty()) {
+			throw new JKindException("No candidate solvers for " + backend);
+		}
+
+		List<Run> similar = findSimilar(backend, features);
+		Map<SolverOption, Double> costs = new EnumMap<>(SolverOption.class);
+		Map<SolverOption, Integer> counts = new EnumMap<>(SolverOption.class);
+		for (Run run : similar) {
+			costs.merge(run.solver, run.getCost(), Double::sum);
+			counts.merge(run.solver, 1, Integer::sum);
+		}
+
+		List<SolverOption> untried = new ArrayList<>(eligible);
+		untried.removeAll(counts.keySet());
+		if (!untried.isEmpty()) {
+			return untried.get(random.nextInt(untried.size()));
+		}
+		if (random.nextDouble() < exploration) {
+			return eligible.get(random.nextInt(eligible.size()));
+		}
+
+		SolverOption best = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (SolverOption solver : eligible) {
+			double cost = costs.get(solver) / counts.get(solver);
+			if (best == null || cost < bestCost) {
+				best = solver;
+				bestCost = cost;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Runs of the same backend on models with the same theories and a similar
+	 * size, widening the search if there are none
+	 */
+	private List<Run> findSimilar(String backend, ModelFeatures features) {
+		List<Predicate<Run>> filters = new ArrayList<>();
+		filters.add(run -> run.features.hasSameTheories(features) && isSimilar(run.features.nodes, features.nodes)
+				&& isSimilar(run.features.properties, features.properties));
+		filters.add(run -> run.features.hasSameTheories(features));
+		filters.add(run -> true);
+
+		for (Predicate<Run> filter : filters) {
+			List<Run> similar = new ArrayList<>();
+			for (Run run : runs) {
+				if (run.backend.equals(backend) && candidates.contains(run.solver) && filter.test(run)) {
+					similar.add(run);
+				}
+			}
+			if (!similar.isEmpty()) {
+				return similar;
+			}
+		}
+		return new ArrayList<>();
+	}
+
+	private static boolean isSimilar(int a, int b) {
+		double ratio = (double) Math.max(a, 1) / Math.max(b, 1);
+		return ratio <= SIZE_RATIO && ratio >= 1 / SIZE_RATIO;
+	}
+
+	private static boolean isDecided(PropertyResult pr) {
+		return pr.getStatus() == Status.VALID || pr.getStatus() == Status.VALID_REFINED
+				|| pr.getStatus() == Status.INVALID || pr.getStatus() == Status.INCONSISTENT;
+	}
+
+	private static String getBackend(KindApi api) {
+		if (api instanceof JKindApi) {
+			return "jkind";
+		} else if (api instanceof Kind2Api) {
+			return "kind2";
+		}
+		return null;
+	}
+
+	private synchronized void record(KindApi api, ModelFeatures features, SolverOption solver, long runtime,
+			int decided, boolean error) {
+		Run run = new Run(getBackend(api), solver, features, runtime, decided, error);
+		runs.add(run);
+		try (PrintWriter out = new PrintWriter(new FileWriter(history, true))) {
+			out.println(run);
+		} catch (IOException e) {
+			throw new JKindException("Error writing solver history to " + history, e);
+		}
+	}
+
+	private void load() {
+		if (!history.isFile()) {
+			return;
+		}
+
+		try (BufferedReader in = new BufferedReader(new FileReader(history))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				Run run = Run.parse(line);
+				if (run != null) {
+					runs.add(run);
+				}
+			}
+		} catch (IOException e) {
+			throw new JKindException("Error reading solver history from " + history, e);
+		}
+	}
+
+	private static class Run {
+		private final String backend;
+		private final SolverOption solver;
+		private final ModelFeatures features;
+		private final long runtime;
+		private final int decided;
+		private final boolean error;
+
+		public Run(String backend, SolverOption solver, ModelFeatures features, long runtime, int decided,
+				boolean error) {
+			this.backend = backend;
+			this.solver = solver;
+			this.features = features;
+			this.runtime = runtime;
+			this.decided = decided;
+			this.error = error;
+		}
+
+		/**
+		 * Runtime, scaled up by the fraction of properties left undecided
+		 */
+		public double getCost() {
+			if (error) {
+				return Double.POSITIVE_INFINITY;
+			}
+			int total = Math.max(features.properties, 1);
+			double undecided = Math.max(total - decided, 0) / (double) total;
+			return runtime * (1 + UNDECIDED_PENALTY * undecided);
+		}
+
+		@Override
+		public String toString() {
+			return String.join("\t", backend, solver.name(), Integer.toString(features.nodes),
+					Integer.toString(features.properties), Boolean.toString(features.arrays),
+					Boolean.toString(features.reals), Boolean.toString(features.nonlinear), Long.toString(runtime),
+					Integer.toString(decided), Boolean.toString(error));
+		}
+
+		public static Run parse(String line) {
+			String[] parts = line.split("\t");
+			if (parts.length != 10) {
+				return null;
+			}
+
+			try {
+				ModelFeatures features = new ModelFeatures(Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+						Boolean.parseBoolean(parts[4]), Boolean.parseBoolean(parts[5]), Boolean.parseBoolean(parts[6]));
+				return new Run(parts[0], SolverOption.valueOf(parts[1]), features, Long.parseLong(parts[7]),
+						Integer.parseInt(parts[8]), Boolean.parseBoolean(parts[9]));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+	}
+}
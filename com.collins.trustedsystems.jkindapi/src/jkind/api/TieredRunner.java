@@ -0,0 +1,181 @@
+package jkind.api;
+
+import static jkind.api.ResultForwarding.isRemaining;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.api.results.Status;
+import jkind.lustre.Program;
+import jkind.results.Property;
+import jkind.results.UnknownProperty;
+
+/**
+ * Checks a program with a sequence of increasingly expensive backend
+ * configurations. Every tier checks only the properties which no earlier tier
+ * could decide, and all tiers report into a single result. A property left
+ * UNKNOWN by every tier keeps the UNKNOWN result of the last tier which
+ * checked it. Properties are taken from the main node of the program, so the
+ * result may rename them as usual.
+ *
+ * <pre>
+ * TieredRunner runner = TieredRunner.jkind(() -&gt; new JKindApi());
+ * runner.execute(program, result, monitor);
+ * </pre>
+ */
+public class TieredRunner {
+	public static final int BMC_DEPTH = 20;
+	public static final int BMC_TIMEOUT = 10;
+	public static final int K_INDUCTION_TIMEOUT = 60;
+	public static final int PDR_MAX = 4;
+	public static final int PDR_TIMEOUT = 600;
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Supplier<? extends KindApi>> tiers = new ArrayList<>();
+
+	/**
+	 * Add a tier, run after all previously added tiers
+	 *
+	 * @param name
+	 *            Name of the tier, used for debugging output
+	 * @param api
+	 *            Creates a configured backend for the tier
+	 */
+	public void addTier(String name, Supplier<? extends KindApi> api) {
+		names.add(name);
+		tiers.add(api);
+	}
+
+	/**
+	 * Create the standard JKind tiers: a shallow bounded model checking sweep,
+	 * then k-induction with invariant generation, then PDR
+	 *
+	 * @param base
+	 *            Creates a JKindApi with settings shared by all tiers, such as
+	 *            the solver or JKind jar
+	 */
+	public static TieredRunner jkind(Supplier<? extends JKindApi> base) {
+		TieredRunner runner = new TieredRunner();
+		runner.addTier("bmc", () -> {
+			JKindApi api = base.get();
+			api.setN(BMC_DEPTH);
+			api.disableKInduction();
+			api.disableInvariantGeneration();
+			api.setPdrMax(0);
+			api.setTimeout(BMC_TIMEOUT);
+			return api;
+		});
+		runner.addTier("k-induction", () -> {
+			JKindApi api = base.get();
+			api.setPdrMax(0);
+			api.setTimeout(K_INDUCTION_TIMEOUT);
+			return api;
+		});
+		runner.addTier("pdr", () -> {
+			JKindApi api = base.get();
+			api.setPdrMax(PDR_MAX);
+			api.setTimeout(PDR_TIMEOUT);
+			return api;
+		});
+		return runner;
+	}
+
+	/**
+	 * Run each tier in turn on the properties still undecided
+	 *
+	 * @param program
+	 *            Lustre program
+	 * @param result
+	 *            Place to store results from all tiers
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public void execute(Program program, JKindResult result, ICancellationMonitor monitor) {
+		ICancellationMonitor tierMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+		Map<String, Property> unknown = new ConcurrentHashMap<>();
+
+		try {
+			for (PropertyResult pr : result.getPropertyResults()) {
+				if (isRemaining(pr)) {
+					pr.start();
+				}
+			}
+
+			for (int i = 0; i < tiers.size() && !monitor.isCanceled(); i++) {
+				List<String> remaining = getRemaining(program, result);
+				if (remaining.isEmpty()) {
+					break;
+				}
+
+				KindApi api = tiers.get(i).get();
+				api.apiDebug("Tier " + names.get(i) + ": " + remaining);
+				JKindResult tier = new JKindResult(result.getName(), remaining);
+				forwardResults(tier, result, unknown);
+				api.execute(PropertyCancellationRunner.restrictProperties(program, remaining), tier, tierMonitor);
+			}
+
+			for (String property : unknown.keySet()) {
+				PropertyResult pr = result.getPropertyResult(property);
+				if (pr != null && pr.getStatus() == Status.WORKING) {
+					pr.setProperty(unknown.get(property));
+				}
+			}
+		} finally {
+			if (monitor.isCanceled()) {
+				result.cancel();
+			} else {
+				result.done();
+			}
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Names of the undecided properties as they appear in the program, which
+	 * may differ from the names shown by the result if it has a renaming
+	 */
+	private static List<String> getRemaining(Program program, JKindResult result) {
+		List<String> remaining = new ArrayList<>();
+		for (String property : program.getMainNode().properties) {
+			PropertyResult pr = result.getPropertyResult(property);
+			if (pr != null && isRemaining(pr)) {
+				remaining.add(property);
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Copy decided results to the combined result as they arrive. UNKNOWN
+	 * results are held back so that the next tier can try the property.
+	 */
+	private static void forwardResults(JKindResult tier, JKindResult result, Map<String, Property> unknown) {
+		for (PropertyResult from : tier.getPropertyResults()) {
+			List<PropertyResult> to = Collections.singletonList(result.getPropertyResult(from.getName()));
+			ResultForwarding.forward(from, () -> to, (target, property) -> {
+				if (property instanceof UnknownProperty) {
+					unknown.put(from.getName(), property);
+				} else {
+					target.setProperty(property);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package jkind.api;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opt-in support for running the blocking parts of the backend APIs on
+ * virtual threads.
+ *
+ * Virtual threads are used only when they have been requested, either with
+ * {@link #enable()} or by setting the system property
+ * {@value #PROPERTY} to true, and the running Java supports them (Java 21 or
+ * later). Otherwise ordinary platform threads are used. The Java 21 API is
+ * accessed reflectively so that the bundle still runs on Java 8.
+ */
+public class VirtualThreads {
+	public static final String PROPERTY = "jkind.api.virtualThreads";
+
+	private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+	private static final Method BUILDER_NAME = findMethod(getBuilderClass(), "name", String.class);
+	private static final Method BUILDER_UNSTARTED = findMethod(getBuilderClass(), "unstarted", Runnable.class);
+	private static final Method NEW_PER_TASK_EXECUTOR = findMethod(Executors.class,
+			"newVirtualThreadPerTaskExecutor");
+
+	private static volatile boolean requested = Boolean.getBoolean(PROPERTY);
+
+	/**
+	 * Request that virtual threads be used where supported
+	 */
+	public static void enable() {
+		requested = true;
+	}
+
+	public static void disable() {
+		requested = false;
+	}
+
+	/**
+	 * @return true if the running Java supports virtual threads
+	 */
+	public static boolean isAvailable() {
+		return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_UNSTARTED != null
+				&& NEW_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * @return true if virtual threads have been requested and are supported
+	 */
+	public static boolean isEnabled() {
+		return requested && isAvailable();
+	}
+
+	/**
+	 * Create an unstarted thread, virtual if enabled
+	 *
+	 * @param name
+	 *            Thread name
+	 * @param task
+	 *            Work for the thread to do
+	 * @return The new thread, platform threads are daemon threads
+	 */
+	public static Thread newThread(String name, Runnable task) {
+		if (isEnabled()) {
+			try {
+				Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+				return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+			} catch (ReflectiveOperationException e) {
+			}
+		}
+
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Create and start a thread, virtual if enabled
+	 *
+	 * @param name
+	 *            Thread name
+	 * @param task
+	 *            Work for the thread to do
+	 * @return The started thread
+	 */
+	public static Thread start(String name, Runnable task) {
+		Thread thread = newThread(name, task);
+		thread.start();
+		return thread;
+	}
+
+	public static ThreadFactory newThreadFactory(String name) {
+		return task -> newThread(name, task);
+	}
+
+	/**
+	 * Create an executor for running many mostly blocked jobs, such as
+	 * {@link KindApi#execute} calls. It uses one virtual thread per task if
+	 * enabled, and a cached pool of platform threads otherwise.
+	 *
+	 * @param name
+	 *            Name given to platform threads
+	 * @return A new executor which the caller must shut down
+	 */
+	public static ExecutorService newTaskExecutor(String name) {
+		if (isEnabled()) {
+			try {
+				return (ExecutorService) NEW_PER_TASK_EXECUTOR.invoke(null);
+			} catch (ReflectiveOperationException e) {
+			}
+		}
+		return Executors.newCachedThreadPool(newThreadFactory(name));
+	}
+
+	/**
+	 * Wait for a thread to finish, checking for cancellation periodically.
+	 * Unlike a sleep loop this returns as soon as the thread finishes.
+	 *
+	 * @param thread
+	 *            Thread to wait for
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @param interval
+	 *            Milliseconds between cancellation checks
+	 */
+	public static void join(Thread thread, ApiUtil.ICancellationMonitor monitor, long interval) {
+		while (!monitor.isCanceled() && thread.isAlive()) {
+			try {
+				thread.join(interval);
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	private static Class<?> getBuilderClass() {
+		try {
+			return Class.forName("java.lang.Thread$Builder");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+		if (clazz == null) {
+			return null;
+		}
+		try {
+			return clazz.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException | SecurityException e) {
+			return null;
+		}
+	}
+}
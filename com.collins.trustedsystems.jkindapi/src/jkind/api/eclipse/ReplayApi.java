@@ -0,0 +1,31 @@
+package jkind.api.eclipse;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import jkind.api.results.JKindResult;
+
+public class ReplayApi extends jkind.api.ReplayApi {
+
+	public ReplayApi(File recording) {
+		super(recording);
+	}
+
+	/**
+	 * Replay the recording
+	 *
+	 * @param lustreFile
+	 *            Ignored
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	@Override
+	public void execute(File lustreFile, JKindResult result, IProgressMonitor monitor) {
+		execute(lustreFile, result, new jkind.api.eclipse.ApiUtil.CancellationMonitor(monitor));
+	}
+
+}
@@ -0,0 +1,85 @@
+package jkind.api.examples;
+
+import static jkind.lustre.LustreUtil.greater;
+import static jkind.lustre.LustreUtil.greaterEqual;
+import static jkind.lustre.LustreUtil.integer;
+
+import java.io.StringWriter;
+
+import jkind.api.ApiUtil;
+import jkind.api.JKindApi;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.lustre.IdExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Program;
+import jkind.relational.RelationalNodeBuilder;
+import jkind.relational.RelationalNodeWriter;
+import jkind.relational.RelationalProgramBuilder;
+
+/**
+ * This example builds, prints, and optionally checks an entailment model with
+ * a large number of relations, to make sure the relational builders scale.
+ * The first argument is the number of relations (default 100000). Pass
+ * "check" as second argument to also run JKind on the model, or "stream" to
+ * write the model with {@link RelationalNodeWriter} instead of building it.
+ * Building and printing take about a second at the default size, while the
+ * JKind check takes on the order of ten minutes.
+ */
+public class RelationalStressBenchmark {
+	public static void main(String[] args) {
+		int relations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		boolean check = args.length > 1 && args[1].equals("check");
+		if (args.length > 1 && args[1].equals("stream")) {
+			stream(relations);
+			return;
+		}
+
+		long start = System.nanoTime();
+		RelationalNodeBuilder node = new RelationalNodeBuilder("stress");
+		IdExpr x = node.createInput("x", NamedType.INT);
+		for (int i = 0; i < relations; i++) {
+			node.createConstraint("c" + i, greater(x, integer(-i)));
+		}
+		node.createProperty("nonnegative", greaterEqual(x, integer(0)));
+
+		RelationalProgramBuilder builder = new RelationalProgramBuilder();
+		builder.addMainNode(node.buildEntailment());
+		Program program = builder.build();
+		System.out.println("Built " + relations + " relations in " + millis(start) + " ms");
+
+		start = System.nanoTime();
+		String text = program.toString();
+		System.out.println("Printed " + text.length() + " characters in " + millis(start) + " ms");
+
+		if (check) {
+			start = System.nanoTime();
+			JKindResult result = new JKindResult("stress");
+			new JKindApi().execute(program, result, new ApiUtil.NullCancellationMonitor());
+			for (PropertyResult pr : result.getPropertyResults()) {
+				System.out.println(pr.getName() + " - " + pr.getStatus());
+			}
+			System.out.println("Checked in " + millis(start) + " ms");
+		}
+	}
+
+	private static void stream(int relations) {
+		long start = System.nanoTime();
+		StringWriter text = new StringWriter();
+		try (RelationalNodeWriter node = new RelationalNodeWriter("stress", text,
+				new RelationalProgramBuilder().build())) {
+			IdExpr x = node.createInput("x", NamedType.INT);
+			for (int i = 0; i < relations; i++) {
+				node.createConstraint("c" + i, greater(x, integer(-i)));
+			}
+			node.createProperty("nonnegative", greaterEqual(x, integer(0)));
+			node.finish();
+		}
+		System.out.println("Streamed " + relations + " relations (" + text.getBuffer().length() + " characters) in "
+				+ millis(start) + " ms");
+	}
+
+	private static long millis(long start) {
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+}
@@ -0,0 +1,64 @@
+package jkind.api.examples;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import jkind.api.transforms.ConeOfInfluenceSlicer;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.parsing.LustreParseUtil;
+import jkind.lustre.visitors.Kind2ArraysPrettyPrintVisitor;
+
+/**
+ * This example measures how much cone of influence slicing shrinks the input
+ * sent to Kind 2 and Sally for each of the given Lustre files
+ */
+public class SlicingBenchmark {
+	private static final int REPETITIONS = 20;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Must specify Lustre files as arguments");
+			System.exit(-1);
+		}
+
+		System.out.println("File\tNodes\tEquations\tCharacters\tSlicing time (ms)");
+		for (String arg : args) {
+			String text = new String(Files.readAllBytes(Paths.get(arg)), StandardCharsets.UTF_8);
+			Program program = LustreParseUtil.program(text);
+
+			Program sliced = ConeOfInfluenceSlicer.program(program);
+			long start = System.nanoTime();
+			for (int i = 0; i < REPETITIONS; i++) {
+				ConeOfInfluenceSlicer.program(program);
+			}
+			double millis = (System.nanoTime() - start) / 1e6 / REPETITIONS;
+
+			System.out.println(arg + "\t" + compare(program.nodes.size(), sliced.nodes.size()) + "\t"
+					+ compare(countEquations(program), countEquations(sliced)) + "\t"
+					+ compare(print(program).length(), print(sliced).length()) + "\t"
+					+ String.format("%.2f", millis));
+		}
+	}
+
+	private static int countEquations(Program program) {
+		int count = 0;
+		for (Node node : program.nodes) {
+			count += node.equations.size();
+		}
+		return count;
+	}
+
+	private static String print(Program program) {
+		Kind2ArraysPrettyPrintVisitor printer = new Kind2ArraysPrettyPrintVisitor();
+		program.accept(printer);
+		return printer.toString();
+	}
+
+	private static String compare(int before, int after) {
+		int percent = before == 0 ? 0 : 100 * (before - after) / before;
+		return before + " -> " + after + " (-" + percent + "%)";
+	}
+}
@@ -0,0 +1,736 @@
+package jkind.api.results;
+
+import java.beans.PropertyChangeEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import jkind.JKindException;
+import jkind.lustre.ArrayType;
+import jkind.lustre.EnumType;
+import jkind.lustre.NamedType;
+import jkind.lustre.RecordType;
+import jkind.lustre.SubrangeIntType;
+import jkind.lustre.TupleType;
+import jkind.lustre.Type;
+import jkind.lustre.VarDecl;
+import jkind.lustre.values.ArrayValue;
+import jkind.lustre.values.BooleanValue;
+import jkind.lustre.values.EnumValue;
+import jkind.lustre.values.IntegerValue;
+import jkind.lustre.values.RealValue;
+import jkind.lustre.values.RecordValue;
+import jkind.lustre.values.TupleValue;
+import jkind.lustre.values.UnknownValue;
+import jkind.lustre.values.Value;
+import jkind.results.Counterexample;
+import jkind.results.FunctionTable;
+import jkind.results.FunctionTableRow;
+import jkind.results.InconsistentProperty;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.Signal;
+import jkind.results.UnknownProperty;
+import jkind.results.ValidProperty;
+import jkind.util.BigFraction;
+
+/**
+ * An append-only log of decided property results, so that a long analysis
+ * can be resumed after the process running it dies.
+ *
+ * The journal first records the shape of a result tree made of
+ * {@link CompositeAnalysisResult} and {@link JKindResult} nodes, then
+ * appends one record each time a property is decided, holding its
+ * {@link Property}, elapsed time, and base progress. Properties added to a
+ * {@link JKindResult} during the analysis, as the XML parser does for a
+ * result created without property names, are journaled as well and are
+ * added back on resume. Each record is written with a single call, so a
+ * crash loses at most the record being written.
+ *
+ * <pre>
+ * ResultJournal journal = ResultJournal.resume(file);
+ * JKindResult result = (JKindResult) journal.getRoot();
+ * new PropertyCancellationRunner(api, program, result).execute(monitor);
+ * journal.close();
+ * </pre>
+ *
+ * Properties are restored exactly as recorded, after any renaming, so the
+ * restored results have no renaming of their own.
+ */
+public class ResultJournal implements Closeable {
+	private static final String HEADER = "JKIND-JOURNAL 3";
+
+	private static final byte COMPOSITE = 'C';
+	private static final byte JKIND = 'J';
+	private static final byte DECIDED = 'D';
+
+	private final OutputStream out;
+	private final Map<AnalysisResult, Integer> ids = new IdentityHashMap<>();
+	private final List<AnalysisResult> results = new ArrayList<>();
+	private AnalysisResult root;
+	private boolean replaying = false;
+	private boolean closed = false;
+
+	private ResultJournal(File file, boolean append) throws IOException {
+		this.out = new FileOutputStream(file, append);
+	}
+
+	/**
+	 * Start a new journal, replacing any existing file
+	 *
+	 * @param file
+	 *            Location of the journal
+	 * @param root
+	 *            Result tree to record, not yet started
+	 */
+	public static ResultJournal create(File file, AnalysisResult root) throws IOException {
+		ResultJournal journal = new ResultJournal(file, false);
+		journal.out.write(HEADER.getBytes("US-ASCII"));
+		journal.root = root;
+		journal.addResult(root, null);
+		return journal;
+	}
+
+	/**
+	 * Rebuild the result tree recorded in a journal and continue appending
+	 * to it. Properties decided before the journal was interrupted have their
+	 * recorded status, all others are WAITING.
+	 *
+	 * @param file
+	 *            Location of the journal
+	 */
+	public static ResultJournal resume(File file) throws IOException {
+		List<byte[]> records = new ArrayList<>();
+		long valid = readRecords(file, records);
+
+		try (FileOutputStream truncate = new FileOutputStream(file, true)) {
+			truncate.getChannel().truncate(valid);
+		}
+
+		ResultJournal journal = new ResultJournal(file, true);
+		journal.replaying = true;
+		for (byte[] record : records) {
+			journal.replay(new DataInputStream(new ByteArrayInputStream(record)));
+		}
+		journal.replaying = false;
+		return journal;
+	}
+
+	public AnalysisResult getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return Names of properties in the result which have not been decided
+	 */
+	public static List<String> getUndecided(JKindResult result) {
+		List<String> undecided = new ArrayList<>();
+		for (PropertyResult pr : result.getPropertyResults()) {
+			if (!isDecided(pr)) {
+				undecided.add(pr.getName());
+			}
+		}
+		return undecided;
+	}
+
+	private static boolean isDecided(PropertyResult pr) {
+		return pr.getProperty() != null && pr.getStatus() != Status.WORKING && pr.getStatus() != Status.WAITING;
+	}
+
+	private static long readRecords(File file, List<byte[]> records) throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			byte[] header = new byte[HEADER.length()];
+			in.readFully(header);
+			if (!HEADER.equals(new String(header, "US-ASCII"))) {
+				throw new JKindException("Not a result journal: " + file);
+			}
+
+			long length = file.length();
+			long valid = header.length;
+			try {
+				while (true) {
+					int size = in.readInt();
+					if (size < 0 || size > length - valid - 4) {
+						// A corrupt length can only come from the record
+						// being written when the journal was interrupted
+						break;
+					}
+					byte[] record = new byte[size];
+					in.readFully(record);
+					records.add(record);
+					valid += 4 + record.length;
+				}
+			} catch (EOFException e) {
+				// A partial record at the end was being written when the
+				// journal was interrupted
+			}
+			return valid;
+		}
+	}
+
+	private void replay(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		if (kind == DECIDED) {
+			JKindResult result = (JKindResult) results.get(in.readInt());
+			String name = in.readUTF();
+			boolean inverted = in.readBoolean();
+			int elapsed = in.readInt();
+			int baseProgress = in.readInt();
+			Property property = readProperty(in);
+			PropertyResult pr = result.getPropertyResult(name);
+			if (pr == null) {
+				pr = result.addProperty(name, inverted);
+			}
+			restore(pr, property, elapsed, baseProgress);
+			return;
+		}
+
+		int parentId = in.readInt();
+		String name = in.readUTF();
+		AnalysisResult result;
+		if (kind == COMPOSITE) {
+			result = new CompositeAnalysisResult(name);
+		} else {
+			int count = in.readInt();
+			List<String> names = new ArrayList<>();
+			List<Boolean> inverted = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				names.add(in.readUTF());
+				inverted.add(in.readBoolean());
+			}
+			result = new JKindResult(name, names, inverted);
+		}
+
+		if (parentId < 0) {
+			root = result;
+		} else {
+			((CompositeAnalysisResult) results.get(parentId)).addChild(result);
+		}
+		register(result);
+	}
+
+	/**
+	 * PropertyResult only advances its elapsed time by ticking while working
+	 */
+	private static void restore(PropertyResult pr, Property property, int elapsed, int baseProgress) {
+		pr.start();
+		for (int i = pr.getElapsed(); i < elapsed; i++) {
+			pr.tick();
+		}
+		pr.setBaseProgress(baseProgress);
+		pr.setProperty(property);
+	}
+
+	private void addResult(AnalysisResult result, AnalysisResult parent) throws IOException {
+		int parentId = parent == null ? -1 : ids.get(parent);
+		if (result instanceof CompositeAnalysisResult) {
+			CompositeAnalysisResult composite = (CompositeAnalysisResult) result;
+			writeRecord(record -> {
+				record.writeByte(COMPOSITE);
+				record.writeInt(parentId);
+				record.writeUTF(composite.getName());
+			});
+			register(composite);
+			for (AnalysisResult child : composite.getChildren()) {
+				addResult(child, composite);
+			}
+		} else if (result instanceof JKindResult) {
+			JKindResult jkindResult = (JKindResult) result;
+			writeRecord(record -> {
+				record.writeByte(JKIND);
+				record.writeInt(parentId);
+				record.writeUTF(jkindResult.getName());
+				record.writeInt(jkindResult.getPropertyResults().size());
+				for (PropertyResult pr : jkindResult.getPropertyResults()) {
+					record.writeUTF(pr.getName());
+					record.writeBoolean(pr.isInverted());
+				}
+			});
+			register(jkindResult);
+		}
+	}
+
+	private void register(AnalysisResult result) {
+		ids.put(result, results.size());
+		results.add(result);
+		if (result instanceof JKindResult) {
+			for (PropertyResult pr : ((JKindResult) result).getPropertyResults()) {
+				listen(result, pr);
+			}
+			result.addPropertyChangeListener((PropertyChangeEvent event) -> {
+				if (event.getPropertyName().equals("propertyResults") && event.getNewValue() instanceof PropertyResult) {
+					listen(result, (PropertyResult) event.getNewValue());
+				}
+			});
+		}
+	}
+
+	private void listen(AnalysisResult result, PropertyResult pr) {
+		pr.addPropertyChangeListener((PropertyChangeEvent event) -> {
+			if (event.getPropertyName().equals("status") && isDecided(pr)) {
+				recordDecided(result, pr);
+			}
+		});
+	}
+
+	private void recordDecided(AnalysisResult result, PropertyResult pr) {
+		try {
+			writeRecord(record -> {
+				record.writeByte(DECIDED);
+				record.writeInt(ids.get(result));
+				record.writeUTF(pr.getName());
+				record.writeBoolean(pr.isInverted());
+				record.writeInt(pr.getElapsed());
+				record.writeInt(pr.getBaseProgress());
+				writeProperty(record, pr.getProperty());
+			});
+		} catch (IOException e) {
+			throw new JKindException("Error writing result journal", e);
+		}
+	}
+
+	private interface RecordWriter {
+		void write(DataOutputStream record) throws IOException;
+	}
+
+	private synchronized void writeRecord(RecordWriter writer) throws IOException {
+		if (closed || replaying) {
+			return;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		record.writeInt(0);
+		writer.write(record);
+		record.flush();
+
+		byte[] buffer = bytes.toByteArray();
+		int length = buffer.length - 4;
+		buffer[0] = (byte) (length >>> 24);
+		buffer[1] = (byte) (length >>> 16);
+		buffer[2] = (byte) (length >>> 8);
+		buffer[3] = (byte) length;
+		out.write(buffer);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			out.close();
+		}
+	}
+
+	/*
+	 * Property encoding
+	 */
+
+	private static final byte VALID = 'V';
+	private static final byte INVALID = 'I';
+	private static final byte UNKNOWN = 'U';
+	private static final byte INCONSISTENT = 'C';
+
+	private static void writeProperty(DataOutputStream out, Property property) throws IOException {
+		if (property instanceof ValidProperty) {
+			ValidProperty vp = (ValidProperty) property;
+			out.writeByte(VALID);
+			writePropertyHeader(out, vp, vp.getSource());
+			out.writeInt(vp.getK());
+			writeStrings(out, vp.getInvariants());
+			writeStrings(out, vp.getIvc());
+			writeStringLists(out, vp.getInvariantSets());
+			writeStringLists(out, vp.getIvcSets());
+			out.writeBoolean(vp.getMivcTimedOut());
+		} else if (property instanceof InvalidProperty) {
+			InvalidProperty ip = (InvalidProperty) property;
+			out.writeByte(INVALID);
+			writePropertyHeader(out, ip, ip.getSource());
+			writeCounterexample(out, ip.getCounterexample());
+			writeStrings(out, ip.getConflicts());
+			writeString(out, ip.getReport());
+		} else if (property instanceof UnknownProperty) {
+			UnknownProperty up = (UnknownProperty) property;
+			out.writeByte(UNKNOWN);
+			writePropertyHeader(out, up, null);
+			out.writeInt(up.getTrueFor());
+			writeCounterexample(out, up.getInductiveCounterexample());
+		} else if (property instanceof InconsistentProperty) {
+			InconsistentProperty ip = (InconsistentProperty) property;
+			out.writeByte(INCONSISTENT);
+			writePropertyHeader(out, ip, ip.getSource());
+			out.writeInt(ip.getK());
+		} else {
+			throw new JKindException("Unknown property type: " + property.getClass().getName());
+		}
+	}
+
+	private static void writePropertyHeader(DataOutputStream out, Property property, String source)
+			throws IOException {
+		out.writeUTF(property.getName());
+		out.writeDouble(property.getRuntime());
+		writeString(out, source);
+	}
+
+	private static Property readProperty(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		String name = in.readUTF();
+		double runtime = in.readDouble();
+		String source = readString(in);
+
+		switch (kind) {
+		case VALID:
+			int k = in.readInt();
+			List<String> invariants = readStrings(in);
+			List<String> ivc = readStrings(in);
+			Set<List<String>> invariantSets = readStringLists(in);
+			Set<List<String>> ivcSets = readStringLists(in);
+			boolean mivcTimedOut = in.readBoolean();
+			return new ValidProperty(name, source, k, runtime, invariants, ivc, invariantSets, ivcSets,
+					mivcTimedOut);
+
+		case INVALID:
+			Counterexample cex = readCounterexample(in);
+			List<String> conflicts = readStrings(in);
+			String report = readString(in);
+			return new InvalidProperty(name, source, cex, conflicts, runtime, report);
+
+		case UNKNOWN:
+			int trueFor = in.readInt();
+			return new UnknownProperty(name, trueFor, readCounterexample(in), runtime);
+
+		case INCONSISTENT:
+			return new InconsistentProperty(name, source, in.readInt(), runtime);
+
+		default:
+			throw new JKindException("Corrupt result journal");
+		}
+	}
+
+	private static void writeCounterexample(DataOutputStream out, Counterexample cex) throws IOException {
+		out.writeBoolean(cex != null);
+		if (cex == null) {
+			return;
+		}
+
+		out.writeInt(cex.getLength());
+		List<Signal<Value>> signals = cex.getSignals();
+		out.writeInt(signals.size());
+		for (Signal<Value> signal : signals) {
+			out.writeUTF(signal.getName());
+			Map<Integer, Value> values = signal.getValues();
+			out.writeInt(values.size());
+			for (Map.Entry<Integer, Value> entry : values.entrySet()) {
+				out.writeInt(entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		}
+
+		List<FunctionTable> tables = cex.getFunctionTables();
+		out.writeInt(tables.size());
+		for (FunctionTable table : tables) {
+			out.writeUTF(table.getName());
+			out.writeInt(table.getInputs().size());
+			for (VarDecl input : table.getInputs()) {
+				writeVarDecl(out, input);
+			}
+			writeVarDecl(out, table.getOutput());
+			out.writeInt(table.getRows().size());
+			for (FunctionTableRow row : table.getRows()) {
+				for (Value input : row.getInputs()) {
+					writeValue(out, input);
+				}
+				writeValue(out, row.getOutput());
+			}
+		}
+	}
+
+	private static Counterexample readCounterexample(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+
+		Counterexample cex = new Counterexample(in.readInt());
+		int signals = in.readInt();
+		for (int i = 0; i < signals; i++) {
+			Signal<Value> signal = new Signal<>(in.readUTF());
+			int values = in.readInt();
+			for (int j = 0; j < values; j++) {
+				signal.putValue(in.readInt(), readValue(in));
+			}
+			cex.addSignal(signal);
+		}
+
+		int tables = in.readInt();
+		for (int i = 0; i < tables; i++) {
+			String name = in.readUTF();
+			int arity = in.readInt();
+			List<VarDecl> inputs = new ArrayList<>();
+			for (int j = 0; j < arity; j++) {
+				inputs.add(readVarDecl(in));
+			}
+			FunctionTable table = new FunctionTable(name, inputs, readVarDecl(in));
+			int rows = in.readInt();
+			for (int j = 0; j < rows; j++) {
+				List<Value> inputValues = new ArrayList<>();
+				for (int k = 0; k < arity; k++) {
+					inputValues.add(readValue(in));
+				}
+				table.addRow(inputValues, readValue(in));
+			}
+			cex.addFunctionTable(table);
+		}
+		return cex;
+	}
+
+	private static void writeVarDecl(DataOutputStream out, VarDecl decl) throws IOException {
+		out.writeUTF(decl.id);
+		writeType(out, decl.type);
+	}
+
+	private static VarDecl readVarDecl(DataInputStream in) throws IOException {
+		String id = in.readUTF();
+		return new VarDecl(id, readType(in));
+	}
+
+	private static void writeType(DataOutputStream out, Type type) throws IOException {
+		if (type instanceof NamedType) {
+			out.writeByte('n');
+			out.writeUTF(((NamedType) type).name);
+		} else if (type instanceof SubrangeIntType) {
+			SubrangeIntType subrange = (SubrangeIntType) type;
+			out.writeByte('s');
+			out.writeUTF(subrange.low.toString());
+			out.writeUTF(subrange.high.toString());
+		} else if (type instanceof EnumType) {
+			EnumType enumType = (EnumType) type;
+			out.writeByte('e');
+			out.writeUTF(enumType.id);
+			out.writeInt(enumType.values.size());
+			for (String value : enumType.values) {
+				out.writeUTF(value);
+			}
+		} else if (type instanceof ArrayType) {
+			ArrayType array = (ArrayType) type;
+			out.writeByte('a');
+			writeType(out, array.base);
+			out.writeInt(array.size);
+		} else if (type instanceof TupleType) {
+			List<Type> types = ((TupleType) type).types;
+			out.writeByte('t');
+			out.writeInt(types.size());
+			for (Type element : types) {
+				writeType(out, element);
+			}
+		} else if (type instanceof RecordType) {
+			RecordType record = (RecordType) type;
+			out.writeByte('c');
+			out.writeUTF(record.id);
+			out.writeInt(record.fields.size());
+			for (Map.Entry<String, Type> field : record.fields.entrySet()) {
+				out.writeUTF(field.getKey());
+				writeType(out, field.getValue());
+			}
+		} else {
+			throw new JKindException("Unknown type: " + type.getClass().getName());
+		}
+	}
+
+	private static Type readType(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		switch (kind) {
+		case 'n':
+			return NamedType.get(in.readUTF());
+		case 's':
+			BigInteger low = new BigInteger(in.readUTF());
+			return new SubrangeIntType(low, new BigInteger(in.readUTF()));
+		case 'e':
+			String id = in.readUTF();
+			int count = in.readInt();
+			List<String> values = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				values.add(in.readUTF());
+			}
+			return new EnumType(id, values);
+		case 'a':
+			Type base = readType(in);
+			return new ArrayType(base, in.readInt());
+		case 't':
+			int size = in.readInt();
+			List<Type> types = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				types.add(readType(in));
+			}
+			return new TupleType(types);
+		case 'c':
+			String record = in.readUTF();
+			int fieldCount = in.readInt();
+			Map<String, Type> fields = new TreeMap<>();
+			for (int i = 0; i < fieldCount; i++) {
+				String field = in.readUTF();
+				fields.put(field, readType(in));
+			}
+			return new RecordType(record, fields);
+		default:
+			throw new JKindException("Corrupt result journal");
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Value value) throws IOException {
+		if (value instanceof BooleanValue) {
+			out.writeByte('b');
+			out.writeBoolean(((BooleanValue) value).value);
+		} else if (value instanceof IntegerValue) {
+			out.writeByte('i');
+			out.writeUTF(((IntegerValue) value).value.toString());
+		} else if (value instanceof RealValue) {
+			BigFraction fraction = ((RealValue) value).value;
+			out.writeByte('r');
+			out.writeUTF(fraction.getNumerator().toString());
+			out.writeUTF(fraction.getDenominator().toString());
+		} else if (value instanceof EnumValue) {
+			out.writeByte('e');
+			out.writeUTF(((EnumValue) value).value);
+		} else if (value instanceof ArrayValue) {
+			out.writeByte('a');
+			writeValues(out, ((ArrayValue) value).elements);
+		} else if (value instanceof TupleValue) {
+			out.writeByte('t');
+			writeValues(out, ((TupleValue) value).elements);
+		} else if (value instanceof RecordValue) {
+			SortedMap<String, Value> fields = ((RecordValue) value).fields;
+			out.writeByte('c');
+			out.writeInt(fields.size());
+			for (Map.Entry<String, Value> field : fields.entrySet()) {
+				out.writeUTF(field.getKey());
+				writeValue(out, field.getValue());
+			}
+		} else if (value instanceof UnknownValue) {
+			out.writeByte('u');
+		} else {
+			throw new JKindException("Unknown value type: " + value.getClass().getName());
+		}
+	}
+
+	private static void writeValues(DataOutputStream out, List<Value> values) throws IOException {
+		out.writeInt(values.size());
+		for (Value value : values) {
+			writeValue(out, value);
+		}
+	}
+
+	private static Value readValue(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		switch (kind) {
+		case 'b':
+			return BooleanValue.fromBoolean(in.readBoolean());
+		case 'i':
+			return new IntegerValue(new BigInteger(in.readUTF()));
+		case 'r':
+			BigInteger num = new BigInteger(in.readUTF());
+			return new RealValue(new BigFraction(num, new BigInteger(in.readUTF())));
+		case 'e':
+			return new EnumValue(in.readUTF());
+		case 'a':
+			return new ArrayValue(readValues(in));
+		case 't':
+			return new TupleValue(readValues(in));
+		case 'c':
+			int count = in.readInt();
+			Map<String, Value> fields = new TreeMap<>();
+			for (int i = 0; i < count; i++) {
+				String field = in.readUTF();
+				fields.put(field, readValue(in));
+			}
+			return new RecordValue(fields);
+		case 'u':
+			return UnknownValue.UNKNOWN;
+		default:
+			throw new JKindException("Corrupt result journal");
+		}
+	}
+
+	private static List<Value> readValues(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			values.add(readValue(in));
+		}
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null) {
+			writeLongUTF(out, string);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? readLongUTF(in) : null;
+	}
+
+	/**
+	 * Invariants and reports may exceed the 64K limit of writeUTF
+	 */
+	private static void writeLongUTF(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readLongUTF(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			writeLongUTF(out, string);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		List<String> strings = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			strings.add(readLongUTF(in));
+		}
+		return strings;
+	}
+
+	private static void writeStringLists(DataOutputStream out, Set<List<String>> lists) throws IOException {
+		out.writeInt(lists.size());
+		for (List<String> list : lists) {
+			writeStrings(out, list);
+		}
+	}
+
+	private static Set<List<String>> readStringLists(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		Set<List<String>> lists = new LinkedHashSet<>();
+		for (int i = 0; i < count; i++) {
+			lists.add(readStrings(in));
+		}
+		return lists;
+	}
+}
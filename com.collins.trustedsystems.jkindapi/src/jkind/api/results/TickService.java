@@ -0,0 +1,157 @@
+package jkind.api.results;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jkind.api.VirtualThreads;
+
+/**
+ * A single shared scheduler for the periodic work done while analyses are
+ * running: the once per second elapsed time update of every active
+ * {@link JKindResult} and the animation of result viewers.
+ *
+ * All active results are ticked together in one pass per second. The
+ * underlying thread is created when the first task is scheduled and is
+ * released as soon as nothing remains scheduled.
+ */
+public class TickService {
+	public static final long TICK_INTERVAL = 1000;
+
+	private static final TickService INSTANCE = new TickService();
+
+	private final Set<JKindResult> active = new LinkedHashSet<>();
+	private final Set<ScheduledFuture<?>> periodic = new HashSet<>();
+	private ScheduledThreadPoolExecutor executor;
+	private ScheduledFuture<?> ticks;
+
+	public static TickService getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start ticking a result once per second until it is removed
+	 *
+	 * @param result
+	 *            Result whose property results should have their elapsed time
+	 *            updated
+	 */
+	public synchronized void add(JKindResult result) {
+		if (active.add(result) && ticks == null) {
+			ticks = scheduleAtFixedRate(this::tickAll, TICK_INTERVAL);
+		}
+	}
+
+	/**
+	 * Stop ticking a result
+	 *
+	 * @param result
+	 *            Result previously passed to {@link #add(JKindResult)}
+	 */
+	public synchronized void remove(JKindResult result) {
+		if (active.remove(result) && active.isEmpty()) {
+			cancel(ticks);
+			ticks = null;
+		}
+	}
+
+	public synchronized int getActiveCount() {
+		return active.size();
+	}
+
+	private void tickAll() {
+		List<JKindResult> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<>(active);
+		}
+
+		for (JKindResult result : snapshot) {
+			try {
+				result.tick();
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	/**
+	 * Run a task periodically on the shared tick thread
+	 *
+	 * @param task
+	 *            Task to run, it should return quickly
+	 * @param period
+	 *            Period in milliseconds
+	 * @return Handle that must be passed to {@link #cancel(ScheduledFuture)}
+	 *         once the task is no longer needed
+	 */
+	public synchronized ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+		ScheduledFuture<?> future = getExecutor().scheduleAtFixedRate(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+		periodic.add(future);
+		return future;
+	}
+
+	/**
+	 * Run a task once on the shared tick thread. A task may schedule itself
+	 * again to run with a varying delay.
+	 *
+	 * @param task
+	 *            Task to run, it should return quickly
+	 * @param delay
+	 *            Delay in milliseconds
+	 * @return Handle that may be passed to {@link #cancel(ScheduledFuture)} to
+	 *         cancel the task before it runs
+	 */
+	public synchronized ScheduledFuture<?> schedule(Runnable task, long delay) {
+		return getExecutor().schedule(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+			} finally {
+				release();
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private ScheduledThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ScheduledThreadPoolExecutor(1, VirtualThreads.newThreadFactory("Ticker"));
+			executor.setRemoveOnCancelPolicy(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * Cancel a task started by {@link #scheduleAtFixedRate(Runnable, long)} or
+	 * {@link #schedule(Runnable, long)}, releasing the shared thread if no
+	 * other tasks remain
+	 *
+	 * @param future
+	 *            Handle returned when the task was scheduled
+	 */
+	public synchronized void cancel(ScheduledFuture<?> future) {
+		if (future != null && future.cancel(false)) {
+			periodic.remove(future);
+			release();
+		}
+	}
+
+	/**
+	 * Shut down the shared thread once no periodic task remains and no one-shot
+	 * task is waiting to run
+	 */
+	private synchronized void release() {
+		if (executor != null && periodic.isEmpty() && executor.getQueue().isEmpty()) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package jkind.api.results;
+
+/**
+ * Updates the elapsed time of a running {@link JKindResult}. Rather than
+ * owning a thread, each ticker registers its result with the shared
+ * {@link TickService} so that all running results are ticked together.
+ */
+public class Ticker {
+	private final JKindResult result;
+	private boolean started;
+
+	public Ticker(JKindResult result) {
+		this.result = result;
+		this.started = false;
+	}
+
+	public synchronized void start() {
+		if (!started) {
+			started = true;
+			TickService.getDefault().add(result);
+		}
+	}
+
+	public synchronized void done() {
+		if (started) {
+			started = false;
+			TickService.getDefault().remove(result);
+		}
+	}
+}
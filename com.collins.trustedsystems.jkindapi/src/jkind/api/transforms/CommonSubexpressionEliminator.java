@@ -0,0 +1,443 @@
+package jkind.api.transforms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import jkind.lustre.ArrayAccessExpr;
+import jkind.lustre.ArrayExpr;
+import jkind.lustre.ArrayUpdateExpr;
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.CastExpr;
+import jkind.lustre.CondactExpr;
+import jkind.lustre.Constant;
+import jkind.lustre.EnumType;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.Function;
+import jkind.lustre.FunctionCallExpr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IfThenElseExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.Node;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.Program;
+import jkind.lustre.RealExpr;
+import jkind.lustre.RecordAccessExpr;
+import jkind.lustre.RecordExpr;
+import jkind.lustre.RecordUpdateExpr;
+import jkind.lustre.TupleExpr;
+import jkind.lustre.TupleType;
+import jkind.lustre.Type;
+import jkind.lustre.TypeDef;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.VarDecl;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.builders.ProgramBuilder;
+import jkind.lustre.visitors.ExprMapVisitor;
+import jkind.lustre.visitors.ExprVisitor;
+import jkind.lustre.visitors.TypeReconstructor;
+
+/**
+ * Replaces subexpressions which occur more than once in the equations and
+ * assertions of a node by new locals, so that solvers see each of them once.
+ *
+ * Subexpressions are hash-consed: each distinct subexpression gets a number
+ * from a table keyed by its operator and the numbers of its children, so
+ * structurally equal subexpressions are found without comparing trees.
+ * Only subexpressions with at least a given number of AST nodes are shared,
+ * and of nested repeated subexpressions only those which still repeat once
+ * the outer one is shared.
+ */
+public class CommonSubexpressionEliminator {
+	public static final int DEFAULT_MIN_SIZE = 4;
+	private static final String PREFIX = "cse_";
+
+	public static Program program(Program program) {
+		return program(program, DEFAULT_MIN_SIZE);
+	}
+
+	/**
+	 * @param minSize
+	 *            Smallest number of AST nodes in a subexpression worth sharing
+	 */
+	public static Program program(Program program, int minSize) {
+		TypeReconstructor types = new TypeReconstructor(program, false);
+		Set<String> globals = getGlobalNames(program);
+
+		ProgramBuilder builder = new ProgramBuilder(program).clearNodes();
+		for (Node node : program.nodes) {
+			types.setNodeContext(node);
+			builder.addNode(new NodeEliminator(node, types, globals, minSize).eliminate());
+		}
+		return builder.build();
+	}
+
+	private static Set<String> getGlobalNames(Program program) {
+		Set<String> names = new HashSet<>();
+		for (TypeDef def : program.types) {
+			names.add(def.id);
+			if (def.type instanceof EnumType) {
+				names.addAll(((EnumType) def.type).values);
+			}
+		}
+		for (Constant constant : program.constants) {
+			names.add(constant.id);
+		}
+		for (Function function : program.functions) {
+			names.add(function.id);
+		}
+		for (Node node : program.nodes) {
+			names.add(node.id);
+		}
+		return names;
+	}
+
+	private static class NodeEliminator {
+		private final Node node;
+		private final TypeReconstructor types;
+		private final int minSize;
+		private final Set<String> used = new HashSet<>();
+		private final HashConsTable table = new HashConsTable();
+		private final Set<Integer> shared = new HashSet<>();
+		private final Map<Integer, String> names = new HashMap<>();
+		private final List<VarDecl> locals = new ArrayList<>();
+		private final List<Equation> equations = new ArrayList<>();
+		private int next = 0;
+
+		public NodeEliminator(Node node, TypeReconstructor types, Set<String> globals, int minSize) {
+			this.node = node;
+			this.types = types;
+			this.minSize = minSize;
+			used.addAll(globals);
+			for (VarDecl decl : node.inputs) {
+				used.add(decl.id);
+			}
+			for (VarDecl decl : node.outputs) {
+				used.add(decl.id);
+			}
+			for (VarDecl decl : node.locals) {
+				used.add(decl.id);
+			}
+		}
+
+		public Node eliminate() {
+			List<Expr> roots = new ArrayList<>();
+			for (Equation equation : node.equations) {
+				roots.add(equation.expr);
+			}
+			roots.addAll(node.assertions);
+			for (Expr root : roots) {
+				root.accept(table);
+			}
+
+			Set<Integer> candidates = new HashSet<>();
+			for (int id = 0; id < table.entries.size(); id++) {
+				Entry entry = table.entries.get(id);
+				if (entry.count >= 2 && entry.size >= minSize && getSharedType(entry.expr) != null) {
+					candidates.add(id);
+				}
+			}
+			if (candidates.isEmpty()) {
+				return node;
+			}
+
+			/*
+			 * Count occurrences as if all candidates were shared. A candidate
+			 * inside a shared candidate is reached only through its one
+			 * definition, so it repeats only if it also occurs elsewhere.
+			 */
+			int[] reached = new int[table.entries.size()];
+			for (Expr root : roots) {
+				reach(table.getId(root), candidates, reached);
+			}
+			for (int id : candidates) {
+				if (reached[id] >= 2) {
+					shared.add(id);
+				}
+			}
+			if (shared.isEmpty()) {
+				return node;
+			}
+
+			Rewriter rewriter = new Rewriter();
+			NodeBuilder builder = new NodeBuilder(node);
+			builder.clearEquations();
+			for (Equation equation : node.equations) {
+				builder.addEquation(new Equation(equation.location, equation.lhs, equation.expr.accept(rewriter)));
+			}
+			builder.clearAssertions();
+			for (Expr assertion : node.assertions) {
+				builder.addAssertion(assertion.accept(rewriter));
+			}
+			builder.addLocals(locals);
+			builder.addEquations(equations);
+			return builder.build();
+		}
+
+		private void reach(int id, Set<Integer> candidates, int[] reached) {
+			if (candidates.contains(id) && reached[id]++ > 0) {
+				return;
+			}
+			for (int child : table.entries.get(id).children) {
+				reach(child, candidates, reached);
+			}
+		}
+
+		private Type getSharedType(Expr e) {
+			Type type = e.accept(types);
+			return type instanceof TupleType ? null : type;
+		}
+
+		private String getFreshName() {
+			String name;
+			do {
+				name = PREFIX + next++;
+			} while (used.contains(name));
+			used.add(name);
+			return name;
+		}
+
+		private Expr share(Expr e, Supplier<Expr> rebuild) {
+			Integer id = table.ids.get(e);
+			if (id == null || !shared.contains(id)) {
+				return rebuild.get();
+			}
+
+			String name = names.get(id);
+			if (name == null) {
+				name = getFreshName();
+				names.put(id, name);
+				locals.add(new VarDecl(name, getSharedType(e)));
+				equations.add(new Equation(new IdExpr(name), rebuild.get()));
+			}
+			return new IdExpr(name);
+		}
+
+		private class Rewriter extends ExprMapVisitor {
+			@Override
+			public Expr visit(ArrayAccessExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(ArrayExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(ArrayUpdateExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(BinaryExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(CastExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(CondactExpr e) {
+				// The call of a condact must stay a call, even if it is shared elsewhere
+				return share(e, () -> new CondactExpr(e.location, e.clock.accept(this),
+						(NodeCallExpr) super.visit(e.call), visitExprs(e.args)));
+			}
+
+			@Override
+			public Expr visit(FunctionCallExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(IfThenElseExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(NodeCallExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(RecordAccessExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(RecordExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(RecordUpdateExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+
+			@Override
+			public Expr visit(UnaryExpr e) {
+				return share(e, () -> super.visit(e));
+			}
+		}
+	}
+
+	private static class Entry {
+		private final Expr expr;
+		private final List<Integer> children;
+		private final int size;
+		private int count = 0;
+
+		public Entry(Expr expr, List<Integer> children, int size) {
+			this.expr = expr;
+			this.children = children;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Numbers each distinct subexpression, counting how often it occurs
+	 */
+	private static class HashConsTable implements ExprVisitor<Integer> {
+		private final Map<List<Object>, Integer> table = new HashMap<>();
+		private final Map<Expr, Integer> ids = new IdentityHashMap<>();
+		private final List<Entry> entries = new ArrayList<>();
+
+		public int getId(Expr e) {
+			return ids.get(e);
+		}
+
+		private Integer intern(Expr e, List<Integer> children, Object... label) {
+			List<Object> key = new ArrayList<>(Arrays.asList(label));
+			key.addAll(children);
+			Integer id = table.get(key);
+			if (id == null) {
+				int size = 1;
+				for (int child : children) {
+					size = Math.min(size + entries.get(child).size, Integer.MAX_VALUE / 2);
+				}
+				id = entries.size();
+				entries.add(new Entry(e, children, size));
+				table.put(key, id);
+			}
+			entries.get(id).count++;
+			ids.put(e, id);
+			return id;
+		}
+
+		private List<Integer> visitAll(Expr... es) {
+			List<Integer> result = new ArrayList<>();
+			for (Expr e : es) {
+				result.add(e.accept(this));
+			}
+			return result;
+		}
+
+		private List<Integer> visitAll(List<Expr> es) {
+			return visitAll(es.toArray(new Expr[es.size()]));
+		}
+
+		@Override
+		public Integer visit(ArrayAccessExpr e) {
+			return intern(e, visitAll(e.array, e.index), "[]");
+		}
+
+		@Override
+		public Integer visit(ArrayExpr e) {
+			return intern(e, visitAll(e.elements), "array", e.elements.size());
+		}
+
+		@Override
+		public Integer visit(ArrayUpdateExpr e) {
+			return intern(e, visitAll(e.array, e.index, e.value), "[:=]");
+		}
+
+		@Override
+		public Integer visit(BinaryExpr e) {
+			return intern(e, visitAll(e.left, e.right), e.op);
+		}
+
+		@Override
+		public Integer visit(BoolExpr e) {
+			return intern(e, visitAll(), "bool", e.value);
+		}
+
+		@Override
+		public Integer visit(CastExpr e) {
+			return intern(e, visitAll(e.expr), "cast", e.type.toString());
+		}
+
+		@Override
+		public Integer visit(CondactExpr e) {
+			List<Expr> children = new ArrayList<>();
+			children.add(e.clock);
+			children.add(e.call);
+			children.addAll(e.args);
+			return intern(e, visitAll(children), "condact", e.args.size());
+		}
+
+		@Override
+		public Integer visit(FunctionCallExpr e) {
+			return intern(e, visitAll(e.args), "function", e.function, e.args.size());
+		}
+
+		@Override
+		public Integer visit(IdExpr e) {
+			return intern(e, visitAll(), "id", e.id);
+		}
+
+		@Override
+		public Integer visit(IfThenElseExpr e) {
+			return intern(e, visitAll(e.cond, e.thenExpr, e.elseExpr), "if");
+		}
+
+		@Override
+		public Integer visit(IntExpr e) {
+			return intern(e, visitAll(), "int", e.value);
+		}
+
+		@Override
+		public Integer visit(NodeCallExpr e) {
+			return intern(e, visitAll(e.args), "node", e.node, e.args.size());
+		}
+
+		@Override
+		public Integer visit(RealExpr e) {
+			return intern(e, visitAll(), "real", e.value);
+		}
+
+		@Override
+		public Integer visit(RecordAccessExpr e) {
+			return intern(e, visitAll(e.record), ".", e.field);
+		}
+
+		@Override
+		public Integer visit(RecordExpr e) {
+			return intern(e, visitAll(new ArrayList<>(e.fields.values())), "record", e.id, e.fields.keySet());
+		}
+
+		@Override
+		public Integer visit(RecordUpdateExpr e) {
+			return intern(e, visitAll(e.record, e.value), "{:=}", e.field);
+		}
+
+		@Override
+		public Integer visit(TupleExpr e) {
+			return intern(e, visitAll(e.elements), "tuple", e.elements.size());
+		}
+
+		@Override
+		public Integer visit(UnaryExpr e) {
+			return intern(e, visitAll(e.expr), e.op);
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package jkind.api.transforms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.lustre.CastExpr;
+import jkind.lustre.Constant;
+import jkind.lustre.EnumType;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.Function;
+import jkind.lustre.FunctionCallExpr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.Program;
+import jkind.lustre.RecordExpr;
+import jkind.lustre.RecordType;
+import jkind.lustre.Type;
+import jkind.lustre.TypeDef;
+import jkind.lustre.VarDecl;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.builders.ProgramBuilder;
+import jkind.lustre.visitors.ExprIterVisitor;
+import jkind.lustre.visitors.TypeIterVisitor;
+
+/**
+ * Removes everything from a program which cannot affect the properties and
+ * assertions of its main node: main node outputs and locals outside their
+ * cone of influence, and nodes, functions, constants, and types which are no
+ * longer referenced. Called nodes are kept whole. Names are not changed, so
+ * results on the sliced program apply directly to the original.
+ */
+public class ConeOfInfluenceSlicer {
+	public static Program program(Program program) {
+		Node main = program.getMainNode();
+		if (main == null || main.realizabilityInputs != null) {
+			return program;
+		}
+
+		References references = new References();
+		Node slicedMain = sliceMain(main, references);
+		return prune(program, main, slicedMain, references);
+	}
+
+	/**
+	 * Remove nodes, functions, constants, and types which the main node does
+	 * not reach. The main node itself is not changed.
+	 */
+	public static Program removeUnreachable(Program program) {
+		Node main = program.getMainNode();
+		if (main == null) {
+			return program;
+		}
+
+		References references = new References();
+		references.addNode(main);
+		return prune(program, main, main, references);
+	}
+
+	private static Program prune(Program program, Node main, Node slicedMain, References references) {
+		Map<String, Node> nodes = new HashMap<>();
+		for (Node node : program.nodes) {
+			nodes.put(node.id, node);
+		}
+		Map<String, Function> functions = new HashMap<>();
+		for (Function function : program.functions) {
+			functions.put(function.id, function);
+		}
+		Map<String, Constant> constants = new HashMap<>();
+		for (Constant constant : program.constants) {
+			constants.put(constant.id, constant);
+		}
+
+		references.addVarDecls(slicedMain.inputs);
+		references.addVarDecls(slicedMain.outputs);
+		references.addVarDecls(slicedMain.locals);
+		Set<String> keptNodes = new HashSet<>();
+		Set<String> keptFunctions = new HashSet<>();
+		Set<String> keptConstants = new HashSet<>();
+		keptNodes.add(slicedMain.id);
+
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (String id : new ArrayList<>(references.nodes)) {
+				Node node = nodes.get(id);
+				if (node != null && keptNodes.add(id)) {
+					references.addNode(node);
+					changed = true;
+				}
+			}
+			for (String id : new ArrayList<>(references.functions)) {
+				Function function = functions.get(id);
+				if (function != null && keptFunctions.add(id)) {
+					references.addVarDecls(function.inputs);
+					references.addVarDecls(function.outputs);
+					changed = true;
+				}
+			}
+			for (String id : new ArrayList<>(references.ids)) {
+				Constant constant = constants.get(id);
+				if (constant != null && keptConstants.add(id)) {
+					references.addExpr(constant.expr);
+					references.addType(constant.type);
+					changed = true;
+				}
+			}
+		}
+
+		ProgramBuilder builder = new ProgramBuilder(program);
+		builder.clearTypes().addTypes(getKeptTypes(program.types, references));
+		builder.clearConstants();
+		for (Constant constant : program.constants) {
+			if (keptConstants.contains(constant.id)) {
+				builder.addConstant(constant);
+			}
+		}
+		builder.clearFunctions();
+		for (Function function : program.functions) {
+			if (keptFunctions.contains(function.id)) {
+				builder.addFunction(function);
+			}
+		}
+		builder.clearNodes();
+		for (Node node : program.nodes) {
+			if (node == main) {
+				builder.addNode(slicedMain);
+			} else if (keptNodes.contains(node.id)) {
+				builder.addNode(node);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Keep the main node equations which properties, assertions, IVC
+	 * elements, and the contract depend on, following equations backwards
+	 */
+	private static Node sliceMain(Node main, References references) {
+		Map<String, Equation> definitions = new HashMap<>();
+		for (Equation equation : main.equations) {
+			for (IdExpr id : equation.lhs) {
+				definitions.put(id.id, equation);
+			}
+		}
+
+		Set<String> needed = new HashSet<>();
+		Deque<String> work = new ArrayDeque<>();
+		work.addAll(main.properties);
+		work.addAll(main.ivc);
+		References roots = new References();
+		roots.addExprs(main.assertions);
+		if (main.contract != null) {
+			roots.addExprs(main.contract.requires);
+			roots.addExprs(main.contract.ensures);
+		}
+		work.addAll(roots.ids);
+		references.addAll(roots);
+
+		Set<Equation> kept = new HashSet<>();
+		while (!work.isEmpty()) {
+			String id = work.pop();
+			if (!needed.add(id)) {
+				continue;
+			}
+
+			Equation equation = definitions.get(id);
+			if (equation != null && kept.add(equation)) {
+				References uses = new References();
+				uses.addExpr(equation.expr);
+				for (IdExpr lhs : equation.lhs) {
+					work.push(lhs.id);
+				}
+				work.addAll(uses.ids);
+				references.addAll(uses);
+			}
+		}
+
+		NodeBuilder builder = new NodeBuilder(main);
+		builder.clearOutputs().addOutputs(filter(main.outputs, needed));
+		builder.clearLocals().addLocals(filter(main.locals, needed));
+		builder.clearEquations();
+		for (Equation equation : main.equations) {
+			if (kept.contains(equation)) {
+				builder.addEquation(equation);
+			}
+		}
+		return builder.build();
+	}
+
+	private static List<VarDecl> filter(List<VarDecl> decls, Set<String> needed) {
+		List<VarDecl> result = new ArrayList<>();
+		for (VarDecl decl : decls) {
+			if (needed.contains(decl.id)) {
+				result.add(decl);
+			}
+		}
+		return result;
+	}
+
+	private static List<TypeDef> getKeptTypes(List<TypeDef> types, References references) {
+		Map<String, TypeDef> definitions = new HashMap<>();
+		for (TypeDef def : types) {
+			definitions.put(def.id, def);
+			if (def.type instanceof EnumType) {
+				for (String value : ((EnumType) def.type).values) {
+					if (references.ids.contains(value)) {
+						references.types.add(def.id);
+					}
+				}
+			}
+		}
+
+		Set<String> kept = new HashSet<>();
+		Deque<String> work = new ArrayDeque<>(references.types);
+		while (!work.isEmpty()) {
+			String id = work.pop();
+			TypeDef def = definitions.get(id);
+			if (def != null && kept.add(id)) {
+				References uses = new References();
+				uses.addType(def.type);
+				work.addAll(uses.types);
+			}
+		}
+
+		List<TypeDef> result = new ArrayList<>();
+		for (TypeDef def : types) {
+			if (kept.contains(def.id)) {
+				result.add(def);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Names of variables, constants, enumeration values, nodes, functions, and
+	 * types referenced by a part of a program
+	 */
+	private static class References {
+		private final Set<String> ids = new HashSet<>();
+		private final Set<String> nodes = new HashSet<>();
+		private final Set<String> functions = new HashSet<>();
+		private final Set<String> types = new HashSet<>();
+
+		private final ExprIterVisitor exprVisitor = new ExprIterVisitor() {
+			@Override
+			public Void visit(IdExpr e) {
+				ids.add(e.id);
+				return null;
+			}
+
+			@Override
+			public Void visit(NodeCallExpr e) {
+				nodes.add(e.node);
+				return super.visit(e);
+			}
+
+			@Override
+			public Void visit(FunctionCallExpr e) {
+				functions.add(e.function);
+				return super.visit(e);
+			}
+
+			@Override
+			public Void visit(RecordExpr e) {
+				types.add(e.id);
+				return super.visit(e);
+			}
+
+			@Override
+			public Void visit(CastExpr e) {
+				addType(e.type);
+				return super.visit(e);
+			}
+		};
+
+		private final TypeIterVisitor typeVisitor = new TypeIterVisitor() {
+			@Override
+			public Void visit(NamedType e) {
+				if (!e.isBuiltin()) {
+					types.add(e.name);
+				}
+				return null;
+			}
+
+			@Override
+			public Void visit(EnumType e) {
+				types.add(e.id);
+				return null;
+			}
+
+			@Override
+			public Void visit(RecordType e) {
+				types.add(e.id);
+				return super.visit(e);
+			}
+		};
+
+		public void addExpr(Expr e) {
+			e.accept(exprVisitor);
+		}
+
+		public void addExprs(List<Expr> es) {
+			for (Expr e : es) {
+				addExpr(e);
+			}
+		}
+
+		public void addType(Type type) {
+			if (type != null) {
+				type.accept(typeVisitor);
+			}
+		}
+
+		public void addVarDecls(List<VarDecl> decls) {
+			for (VarDecl decl : decls) {
+				addType(decl.type);
+			}
+		}
+
+		public void addNode(Node node) {
+			addVarDecls(node.inputs);
+			addVarDecls(node.outputs);
+			addVarDecls(node.locals);
+			for (Equation equation : node.equations) {
+				addExpr(equation.expr);
+			}
+			addExprs(node.assertions);
+			if (node.contract != null) {
+				addExprs(node.contract.requires);
+				addExprs(node.contract.ensures);
+			}
+		}
+
+		public void addAll(References other) {
+			ids.addAll(other.ids);
+			nodes.addAll(other.nodes);
+			functions.addAll(other.functions);
+			types.addAll(other.types);
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package jkind.api.transforms;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.lustre.BinaryExpr;
+import jkind.lustre.BinaryOp;
+import jkind.lustre.BoolExpr;
+import jkind.lustre.Constant;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.IfThenElseExpr;
+import jkind.lustre.IntExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.RealExpr;
+import jkind.lustre.Type;
+import jkind.lustre.UnaryExpr;
+import jkind.lustre.UnaryOp;
+import jkind.lustre.VarDecl;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.values.BooleanValue;
+import jkind.lustre.values.IntegerValue;
+import jkind.lustre.values.RealValue;
+import jkind.lustre.values.Value;
+import jkind.lustre.visitors.AstMapVisitor;
+import jkind.lustre.visitors.ExprIterVisitor;
+import jkind.lustre.visitors.TypeAwareAstMapVisitor;
+import jkind.util.BigFraction;
+
+/**
+ * Simplifies a program before it is sent to a backend: folds literal
+ * constants and arithmetic on literals, simplifies boolean operators and
+ * if-then-else with literal arguments, inlines locals which are defined as a
+ * literal or a variable and used once, and removes nodes, functions,
+ * constants, and types which the main node does not reach. Properties, IVC
+ * elements, inputs, and outputs are never removed or renamed, so results on
+ * the simplified program apply directly to the original.
+ */
+public class LustreSimplifier {
+	private static final int MAX_ROUNDS = 10;
+
+	public static Program program(Program program) {
+		if (program.getMainNode() == null) {
+			return program;
+		}
+
+		Program result = new Folder(getLiteralConstants(program)).visit(program);
+		for (int i = 0; i < MAX_ROUNDS; i++) {
+			Inliner inliner = new Inliner();
+			result = inliner.visit(result);
+			if (!inliner.changed) {
+				break;
+			}
+			result = new Folder(new HashMap<>()).visit(result);
+		}
+		return ConeOfInfluenceSlicer.removeUnreachable(result);
+	}
+
+	/**
+	 * Fold constant definitions, allowing constants to refer to each other in
+	 * any order, and keep those which become literals of their declared type
+	 */
+	private static Map<String, Expr> getLiteralConstants(Program program) {
+		Map<String, Expr> literals = new HashMap<>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			Folder folder = new Folder(literals);
+			for (Constant constant : program.constants) {
+				if (literals.containsKey(constant.id)) {
+					continue;
+				}
+				Expr folded = constant.expr.accept(folder);
+				if (isLiteral(folded) && hasType(folded, constant.type)) {
+					literals.put(constant.id, folded);
+					changed = true;
+				}
+			}
+		}
+		return literals;
+	}
+
+	private static boolean hasType(Expr literal, Type type) {
+		if (type == null) {
+			return true;
+		} else if (literal instanceof IntExpr) {
+			return NamedType.INT.equals(type);
+		} else if (literal instanceof RealExpr) {
+			return NamedType.REAL.equals(type);
+		} else {
+			return NamedType.BOOL.equals(type);
+		}
+	}
+
+	private static boolean isLiteral(Expr e) {
+		return e instanceof IntExpr || e instanceof RealExpr || e instanceof BoolExpr;
+	}
+
+	private static boolean isTrue(Expr e) {
+		return e instanceof BoolExpr && ((BoolExpr) e).value;
+	}
+
+	private static boolean isFalse(Expr e) {
+		return e instanceof BoolExpr && !((BoolExpr) e).value;
+	}
+
+	private static Value toValue(Expr e) {
+		if (e instanceof IntExpr) {
+			return new IntegerValue(((IntExpr) e).value);
+		} else if (e instanceof RealExpr) {
+			return new RealValue(BigFraction.valueOf(((RealExpr) e).value));
+		} else if (e instanceof BoolExpr) {
+			return BooleanValue.fromBoolean(((BoolExpr) e).value);
+		} else {
+			return null;
+		}
+	}
+
+	private static Expr toExpr(Value value) {
+		if (value instanceof IntegerValue) {
+			return new IntExpr(((IntegerValue) value).value);
+		} else if (value instanceof BooleanValue) {
+			return new BoolExpr(((BooleanValue) value).value);
+		} else if (value instanceof RealValue) {
+			BigFraction fraction = ((RealValue) value).value;
+			try {
+				return new RealExpr(new BigDecimal(fraction.getNumerator())
+						.divide(new BigDecimal(fraction.getDenominator())));
+			} catch (ArithmeticException e) {
+				// No exact decimal representation, leave the division in place
+				return null;
+			}
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Operations which would fail or whose result differs between backends
+	 */
+	private static boolean isUndefined(BinaryOp op, Value right) {
+		switch (op) {
+		case INT_DIVIDE:
+		case MODULUS:
+			return !(right instanceof IntegerValue) || ((IntegerValue) right).value.signum() <= 0;
+		case DIVIDE:
+			return !(right instanceof RealValue) || ((RealValue) right).value.signum() == 0;
+		default:
+			return false;
+		}
+	}
+
+	private static class Folder extends AstMapVisitor {
+		private final Map<String, Expr> constants;
+		private final Set<String> shadowed = new HashSet<>();
+
+		public Folder(Map<String, Expr> constants) {
+			this.constants = constants;
+		}
+
+		@Override
+		public Node visit(Node e) {
+			shadowed.clear();
+			for (VarDecl decl : getVarDecls(e)) {
+				shadowed.add(decl.id);
+			}
+			Node result = super.visit(e);
+			shadowed.clear();
+			return result;
+		}
+
+		@Override
+		public Expr visit(IdExpr e) {
+			Expr literal = constants.get(e.id);
+			if (literal != null && !shadowed.contains(e.id)) {
+				return literal;
+			}
+			return e;
+		}
+
+		@Override
+		public Expr visit(UnaryExpr e) {
+			Expr expr = e.expr.accept(this);
+			if (e.op == UnaryOp.NOT && expr instanceof UnaryExpr && ((UnaryExpr) expr).op == UnaryOp.NOT) {
+				return ((UnaryExpr) expr).expr;
+			}
+
+			Value value = toValue(expr);
+			if (value != null && e.op != UnaryOp.PRE) {
+				Expr folded = toExpr(value.applyUnaryOp(e.op));
+				if (folded != null) {
+					return folded;
+				}
+			}
+			return expr == e.expr ? e : new UnaryExpr(e.location, e.op, expr);
+		}
+
+		@Override
+		public Expr visit(BinaryExpr e) {
+			Expr left = e.left.accept(this);
+			Expr right = e.right.accept(this);
+
+			Value leftValue = toValue(left);
+			Value rightValue = toValue(right);
+			if (leftValue != null && rightValue != null && e.op != BinaryOp.ARROW && !isUndefined(e.op, rightValue)) {
+				Value value = leftValue.applyBinaryOp(e.op, rightValue);
+				if (value != null) {
+					Expr folded = toExpr(value);
+					if (folded != null) {
+						return folded;
+					}
+				}
+			}
+
+			switch (e.op) {
+			case AND:
+				if (isTrue(left)) {
+					return right;
+				} else if (isTrue(right)) {
+					return left;
+				} else if (isFalse(left) || isFalse(right)) {
+					return new BoolExpr(false);
+				}
+				break;
+			case OR:
+				if (isFalse(left)) {
+					return right;
+				} else if (isFalse(right)) {
+					return left;
+				} else if (isTrue(left) || isTrue(right)) {
+					return new BoolExpr(true);
+				}
+				break;
+			case IMPLIES:
+				if (isTrue(left)) {
+					return right;
+				} else if (isFalse(left) || isTrue(right)) {
+					return new BoolExpr(true);
+				}
+				break;
+			default:
+				break;
+			}
+
+			if (left == e.left && right == e.right) {
+				return e;
+			}
+			return new BinaryExpr(e.location, left, e.op, right);
+		}
+
+		@Override
+		public Expr visit(IfThenElseExpr e) {
+			Expr cond = e.cond.accept(this);
+			Expr thenExpr = e.thenExpr.accept(this);
+			Expr elseExpr = e.elseExpr.accept(this);
+			if (isTrue(cond)) {
+				return thenExpr;
+			} else if (isFalse(cond)) {
+				return elseExpr;
+			}
+
+			if (cond == e.cond && thenExpr == e.thenExpr && elseExpr == e.elseExpr) {
+				return e;
+			}
+			return new IfThenElseExpr(e.location, cond, thenExpr, elseExpr);
+		}
+	}
+
+	/**
+	 * Replaces locals defined as a literal or a variable of the same basic
+	 * type, which are used exactly once, by their definitions
+	 */
+	private static class Inliner extends TypeAwareAstMapVisitor {
+		private final Map<String, Expr> substitutions = new HashMap<>();
+		private boolean changed = false;
+
+		@Override
+		public Node visit(Node e) {
+			typeReconstructor.setNodeContext(e);
+			substitutions.clear();
+			findSubstitutions(e);
+			if (substitutions.isEmpty()) {
+				return e;
+			}
+
+			Node mapped = super.visit(e);
+			NodeBuilder builder = new NodeBuilder(mapped);
+			builder.clearLocals();
+			for (VarDecl local : mapped.locals) {
+				if (!substitutions.containsKey(local.id)) {
+					builder.addLocal(local);
+				}
+			}
+			builder.clearEquations();
+			for (Equation equation : mapped.equations) {
+				if (equation.lhs.size() != 1 || !substitutions.containsKey(equation.lhs.get(0).id)) {
+					builder.addEquation(equation);
+				}
+			}
+			changed = true;
+			return builder.build();
+		}
+
+		private void findSubstitutions(Node node) {
+			Map<String, Integer> uses = countUses(node);
+			Set<String> kept = new HashSet<>(node.properties);
+			kept.addAll(node.ivc);
+			if (node.realizabilityInputs != null) {
+				kept.addAll(node.realizabilityInputs);
+			}
+
+			Map<String, VarDecl> locals = new HashMap<>();
+			for (VarDecl local : node.locals) {
+				locals.put(local.id, local);
+			}
+
+			for (Equation equation : node.equations) {
+				if (equation.lhs.size() != 1) {
+					continue;
+				}
+				VarDecl local = locals.get(equation.lhs.get(0).id);
+				Expr expr = equation.expr;
+				if (local != null && !kept.contains(local.id) && uses.getOrDefault(local.id, 0) == 1
+						&& (isLiteral(expr) || expr instanceof IdExpr) && local.type instanceof NamedType
+						&& ((NamedType) local.type).isBuiltin() && local.type.equals(getType(expr))) {
+					substitutions.put(local.id, expr);
+				}
+			}
+		}
+
+		private static Map<String, Integer> countUses(Node node) {
+			Map<String, Integer> uses = new HashMap<>();
+			ExprIterVisitor counter = new ExprIterVisitor() {
+				@Override
+				public Void visit(IdExpr e) {
+					uses.merge(e.id, 1, Integer::sum);
+					return null;
+				}
+			};
+
+			for (Equation equation : node.equations) {
+				equation.expr.accept(counter);
+			}
+			List<Expr> exprs = new ArrayList<>(node.assertions);
+			if (node.contract != null) {
+				exprs.addAll(node.contract.requires);
+				exprs.addAll(node.contract.ensures);
+			}
+			for (Expr expr : exprs) {
+				expr.accept(counter);
+			}
+			return uses;
+		}
+
+		@Override
+		public Expr visit(IdExpr e) {
+			Expr result = e;
+			Set<String> seen = new HashSet<>();
+			while (result instanceof IdExpr && seen.add(((IdExpr) result).id)) {
+				Expr substitution = substitutions.get(((IdExpr) result).id);
+				if (substitution == null) {
+					break;
+				}
+				result = substitution;
+			}
+			return result;
+		}
+	}
+
+	private static List<VarDecl> getVarDecls(Node node) {
+		List<VarDecl> decls = new ArrayList<>(node.inputs);
+		decls.addAll(node.outputs);
+		decls.addAll(node.locals);
+		return decls;
+	}
+}
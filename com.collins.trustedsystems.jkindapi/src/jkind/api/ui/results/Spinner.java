@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 
 import jkind.JKindException;
+import jkind.api.results.TickService;
 
 import org.eclipse.jface.viewers.ColumnViewer;
 import org.eclipse.swt.graphics.Image;
@@ -16,10 +18,14 @@ import org.eclipse.swt.widgets.Display;
 public class Spinner {
 	private final List<Image> frames = new ArrayList<>();
 	private final List<Integer> delays = new ArrayList<>();
+	private final ColumnViewer viewer;
 	private int current = 0;
-	private Thread thread;
+	private ScheduledFuture<?> animation;
+	private boolean stopped = false;
+	private static final long DEFAULT_DELAY = 100;
 
-	public Spinner(String filename, final ColumnViewer viewer) {
+	public Spinner(String filename, ColumnViewer viewer) {
+		this.viewer = viewer;
 		ImageLoader loader = new ImageLoader();
 		try (InputStream stream = AnalysisResultLabelProvider.class.getResourceAsStream(filename)) {
 			if (stream == null) {
@@ -34,38 +40,50 @@ public class Spinner {
 		} catch (IOException e) {
 		}
 
-		thread = new Thread("Spinner") {
-			@Override
-			public void run() {
-				try {
-					while (!viewer.getControl().isDisposed()) {
-						Thread.sleep(delays.get(current));
-						current = (current + 1) % frames.size();
-						Display.getDefault().asyncExec(new Runnable() {
-							@Override
-							public void run() {
-								if (!viewer.getControl().isDisposed()) {
-									viewer.refresh();
-								}
-							}
-						});
-					}
-				} catch (InterruptedException e) {
-				}
+		if (!frames.isEmpty()) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Show the current frame for its own delay before moving to the next one
+	 */
+	private synchronized void schedule() {
+		if (stopped) {
+			return;
+		}
+		long delay = delays.get(current) <= 0 ? DEFAULT_DELAY : delays.get(current);
+		animation = TickService.getDefault().schedule(this::advance, delay);
+	}
+
+	private void advance() {
+		if (viewer.getControl().isDisposed()) {
+			stop();
+			return;
+		}
+		current = (current + 1) % frames.size();
+		Display.getDefault().asyncExec(() -> {
+			if (!viewer.getControl().isDisposed()) {
+				viewer.refresh();
 			}
-		};
-		thread.start();
+		});
+		schedule();
 	}
 
 	public Image getFrame() {
 		return frames.get(current);
 	}
 
-	public void dispose() {
-		if (thread != null) {
-			thread.interrupt();
-			thread = null;
+	private synchronized void stop() {
+		stopped = true;
+		if (animation != null) {
+			TickService.getDefault().cancel(animation);
+			animation = null;
 		}
+	}
+
+	public void dispose() {
+		stop();
 		for (Image image : frames) {
 			image.dispose();
 		}
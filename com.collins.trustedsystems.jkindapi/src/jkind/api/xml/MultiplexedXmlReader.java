@@ -0,0 +1,265 @@
+package jkind.api.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jkind.api.Backend;
+import jkind.api.VirtualThreads;
+import jkind.api.results.JKindResult;
+
+/**
+ * Drains the output of many backend processes with a small, fixed number of
+ * event loop threads instead of one blocking {@link XmlParseThread} per
+ * process.
+ *
+ * Process pipes are not selectable channels in Java, so each loop polls the
+ * processes assigned to it and only reads the bytes that are already
+ * available, which never blocks. Complete lines are passed to a per-run
+ * {@link XmlElementParser}. Loop threads are started on demand and exit when
+ * they have no processes left to watch.
+ *
+ * When {@link VirtualThreads} are enabled each process is instead read by an
+ * {@link XmlParseThread} running on its own virtual thread, since blocking
+ * a virtual thread is cheap.
+ */
+public class MultiplexedXmlReader {
+	private static final int BUFFER_SIZE = 8192;
+	private static final long MIN_IDLE_WAIT = 1;
+	private static final long MAX_IDLE_WAIT = 50;
+
+	private static final MultiplexedXmlReader INSTANCE = new MultiplexedXmlReader(
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 8)));
+
+	private final EventLoop[] loops;
+
+	public static MultiplexedXmlReader getDefault() {
+		return INSTANCE;
+	}
+
+	public MultiplexedXmlReader(int threads) {
+		loops = new EventLoop[threads];
+		for (int i = 0; i < threads; i++) {
+			loops[i] = new EventLoop("XmlReader-" + i);
+		}
+	}
+
+	/**
+	 * Start reading the output of a backend process into a result
+	 *
+	 * @param process
+	 *            Process whose standard output contains backend XML
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param backend
+	 *            Backend that produces the output
+	 * @return Handle used to wait for the output to be consumed
+	 */
+	public Source register(Process process, JKindResult result, Backend backend) {
+		return register(process, process.getInputStream(), result, backend);
+	}
+
+	/**
+	 * Start reading the output of a backend process into a result
+	 *
+	 * @param process
+	 *            Process which is watched for termination
+	 * @param stream
+	 *            Standard output of the process, possibly wrapped
+	 * @param result
+	 *            Place to store results as they come in
+	 * @param backend
+	 *            Backend that produces the output
+	 * @return Handle used to wait for the output to be consumed
+	 */
+	public Source register(Process process, InputStream stream, JKindResult result, Backend backend) {
+		if (VirtualThreads.isEnabled()) {
+			return Source.startReader(process, stream, result, backend);
+		}
+
+		Source source = new Source(process, stream, new XmlElementParser(result, backend));
+		EventLoop least = loops[0];
+		for (EventLoop loop : loops) {
+			if (loop.size() < least.size()) {
+				least = loop;
+			}
+		}
+		least.add(source);
+		return source;
+	}
+
+	/**
+	 * The output of one process as seen by its event loop
+	 */
+	public static class Source {
+		private final Process process;
+		private final InputStream stream;
+		private final XmlElementParser parser;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile Throwable throwable;
+
+		private Source(Process process, InputStream stream, XmlElementParser parser) {
+			this.process = process;
+			this.stream = stream;
+			this.parser = parser;
+		}
+
+		private static Source startReader(Process process, InputStream stream, JKindResult result,
+				Backend backend) {
+			Source source = new Source(process, stream, null);
+			XmlParseThread parseThread = new XmlParseThread(source.stream, result, backend);
+			VirtualThreads.start("XmlParseThread", () -> {
+				parseThread.run();
+				source.throwable = parseThread.getThrowable();
+				source.finished.countDown();
+			});
+			return source;
+		}
+
+		/**
+		 * Read whatever output is available without blocking
+		 *
+		 * @return true if any output was read
+		 */
+		private boolean poll(byte[] buffer) {
+			try {
+				boolean alive = process.isAlive();
+				int available = stream.available();
+				if (available <= 0) {
+					if (!alive) {
+						finish(null);
+					}
+					return false;
+				}
+
+				int n = stream.read(buffer, 0, Math.min(available, buffer.length));
+				if (n < 0) {
+					finish(null);
+					return false;
+				}
+				for (int i = 0; i < n; i++) {
+					line.write(buffer[i]);
+					if (buffer[i] == '\n') {
+						parser.addLine(new String(line.toByteArray(), StandardCharsets.ISO_8859_1));
+						line.reset();
+					}
+				}
+				if (parser.getThrowable() != null) {
+					finish(parser.getThrowable());
+				}
+				return true;
+			} catch (IOException e) {
+				/*
+				 * The output stream is closed once the process has exited,
+				 * including when it is destroyed on cancellation. Any other
+				 * failure to read is an error.
+				 */
+				finish(process.isAlive() ? e : null);
+				return false;
+			} catch (Throwable t) {
+				finish(t);
+				return false;
+			}
+		}
+
+		private void finish(Throwable t) {
+			if (t == null && line.size() > 0) {
+				parser.addLine(new String(line.toByteArray(), StandardCharsets.ISO_8859_1));
+				t = parser.getThrowable();
+			}
+			throwable = t;
+			try {
+				stream.close();
+			} catch (IOException e) {
+			}
+			finished.countDown();
+		}
+
+		public boolean isDone() {
+			return finished.getCount() == 0;
+		}
+
+		public void join() throws InterruptedException {
+			finished.await();
+		}
+
+		/**
+		 * Wait for the output to be consumed, or until the timeout elapses
+		 *
+		 * @param timeout
+		 *            Maximum time to wait in milliseconds
+		 * @return true if the output has been consumed
+		 */
+		public boolean join(long timeout) throws InterruptedException {
+			return finished.await(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		public Throwable getThrowable() {
+			return throwable;
+		}
+	}
+
+	private static class EventLoop implements Runnable {
+		private final String name;
+		private final List<Source> sources = new ArrayList<>();
+		private Thread thread;
+
+		public EventLoop(String name) {
+			this.name = name;
+		}
+
+		public synchronized int size() {
+			return sources.size();
+		}
+
+		public synchronized void add(Source source) {
+			sources.add(source);
+			if (thread == null) {
+				thread = new Thread(this, name);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			notifyAll();
+		}
+
+		@Override
+		public void run() {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long idleWait = MIN_IDLE_WAIT;
+			while (true) {
+				List<Source> snapshot;
+				synchronized (this) {
+					sources.removeIf(Source::isDone);
+					if (sources.isEmpty()) {
+						thread = null;
+						return;
+					}
+					snapshot = new ArrayList<>(sources);
+				}
+
+				boolean progress = false;
+				for (Source source : snapshot) {
+					progress |= source.poll(buffer);
+				}
+
+				if (progress) {
+					idleWait = MIN_IDLE_WAIT;
+				} else {
+					synchronized (this) {
+						try {
+							wait(idleWait);
+						} catch (InterruptedException e) {
+						}
+					}
+					idleWait = Math.min(2 * idleWait, MAX_IDLE_WAIT);
+				}
+			}
+		}
+	}
+}
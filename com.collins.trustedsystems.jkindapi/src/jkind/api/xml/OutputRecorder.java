@@ -0,0 +1,103 @@
+package jkind.api.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import jkind.api.Backend;
+
+/**
+ * Records the raw XML output of a backend, along with the time at which each
+ * line arrived, to a gzip compressed file which can later be played back with
+ * {@link ReplayInputStream}.
+ *
+ * The file starts with a header line naming the backend. Each following line
+ * holds the milliseconds elapsed since recording started, a space, and one
+ * line of backend output.
+ */
+public class OutputRecorder implements Closeable {
+	public static final String HEADER = "JKIND-REPLAY";
+
+	private final OutputStream out;
+	private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+	private final long start;
+	private boolean closed = false;
+
+	public OutputRecorder(File file, Backend backend) throws IOException {
+		this.out = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+		this.start = System.currentTimeMillis();
+		out.write((HEADER + " " + backend.name() + "\n").getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Wrap a stream so that everything read from it is recorded
+	 *
+	 * @param stream
+	 *            Backend output
+	 * @return A stream with the same content as the original
+	 */
+	public InputStream wrap(InputStream stream) {
+		return new FilterInputStream(stream) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					record(new byte[] { (byte) b }, 0, 1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n > 0) {
+					record(b, off, n);
+				}
+				return n;
+			}
+		};
+	}
+
+	private synchronized void record(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			return;
+		}
+
+		for (int i = off; i < off + len; i++) {
+			if (b[i] == '\n') {
+				writeLine();
+			} else {
+				line.write(b[i]);
+			}
+		}
+	}
+
+	private void writeLine() throws IOException {
+		long elapsed = System.currentTimeMillis() - start;
+		out.write((elapsed + " ").getBytes(StandardCharsets.ISO_8859_1));
+		line.writeTo(out);
+		out.write('\n');
+		line.reset();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		if (line.size() > 0) {
+			writeLine();
+		}
+		out.close();
+	}
+}
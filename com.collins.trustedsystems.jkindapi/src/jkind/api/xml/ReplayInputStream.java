@@ -0,0 +1,131 @@
+package jkind.api.xml;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import jkind.JKindException;
+import jkind.api.Backend;
+
+/**
+ * Plays back backend output recorded by {@link OutputRecorder}.
+ *
+ * Each line is released at its recorded time divided by the speed, so a
+ * speed of 1 reproduces the original timing, 2 plays twice as fast, and a
+ * speed of 0 or less releases everything as fast as it can be read.
+ */
+public class ReplayInputStream extends InputStream {
+	private final InputStream source;
+	private final Backend backend;
+	private final double speed;
+	private long start = -1;
+	private byte[] line = new byte[0];
+	private int index = 0;
+	private volatile boolean done = false;
+
+	public ReplayInputStream(File file, double speed) throws IOException {
+		this.source = new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)));
+		this.speed = speed;
+		this.backend = readHeader();
+	}
+
+	private Backend readHeader() throws IOException {
+		String header = readRecord();
+		String[] parts = header == null ? new String[0] : header.trim().split(" ");
+		if (parts.length != 2 || !parts[0].equals(OutputRecorder.HEADER)) {
+			source.close();
+			throw new JKindException("Not a backend output recording");
+		}
+		return Backend.valueOf(parts[1]);
+	}
+
+	public Backend getBackend() {
+		return backend;
+	}
+
+	public static Backend readBackend(File file) throws IOException {
+		try (ReplayInputStream stream = new ReplayInputStream(file, 0)) {
+			return stream.getBackend();
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		while (index >= line.length) {
+			if (done || !nextLine()) {
+				done = true;
+				return -1;
+			}
+		}
+		return line[index++] & 0xFF;
+	}
+
+	private boolean nextLine() throws IOException {
+		String record = readRecord();
+		if (record == null) {
+			return false;
+		}
+
+		int space = record.indexOf(' ');
+		if (space < 0) {
+			throw new JKindException("Malformed backend output recording: " + record);
+		}
+		long elapsed = Long.parseLong(record.substring(0, space));
+		if (!waitUntil(elapsed)) {
+			return false;
+		}
+
+		line = record.substring(space + 1).getBytes(StandardCharsets.ISO_8859_1);
+		index = 0;
+		return true;
+	}
+
+	private boolean waitUntil(long elapsed) {
+		if (start < 0) {
+			start = System.currentTimeMillis();
+		}
+		if (speed <= 0) {
+			return true;
+		}
+
+		long target = start + (long) (elapsed / speed);
+		long now;
+		while ((now = System.currentTimeMillis()) < target) {
+			try {
+				Thread.sleep(target - now);
+			} catch (InterruptedException e) {
+				return false;
+			}
+			if (done) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String readRecord() throws IOException {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		int b;
+		while ((b = source.read()) != -1) {
+			record.write(b);
+			if (b == '\n') {
+				break;
+			}
+		}
+		if (record.size() == 0) {
+			return null;
+		}
+		return new String(record.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		done = true;
+		source.close();
+	}
+}
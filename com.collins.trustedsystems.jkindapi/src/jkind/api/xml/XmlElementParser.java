@@ -0,0 +1,110 @@
+package jkind.api.xml;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import jkind.api.Backend;
+import jkind.api.results.JKindResult;
+
+/**
+ * Parses backend XML output that is pushed to it one line at a time, rather
+ * than pulled from a stream by a dedicated thread.
+ *
+ * Lines are grouped into complete Property and Progress elements which are
+ * then handed to an {@link XmlParseThread} that is run synchronously on the
+ * caller's thread and never started. Kind 2 elements are prefixed with the
+ * enclosing AnalysisStart line so that the parser sees the same context it
+ * would see when reading the whole stream.
+ */
+public class XmlElementParser {
+	private final ElementInputStream elementStream = new ElementInputStream();
+	private final XmlParseThread parser;
+	private String analysisLine = null;
+	private StringBuilder buffer = null;
+
+	public XmlElementParser(JKindResult result, Backend backend) {
+		this.parser = new XmlParseThread(elementStream, result, backend);
+	}
+
+	/**
+	 * Add one line of output, including its trailing newline if any
+	 *
+	 * @param line
+	 *            Line of backend output
+	 */
+	public void addLine(String line) {
+		if (getThrowable() != null) {
+			return;
+		}
+
+		boolean beginProperty = line.contains("<Property ");
+		boolean endProperty = line.contains("</Property>");
+		boolean beginProgress = line.contains("<Progress ");
+		boolean endProgress = line.contains("</Progress>");
+		boolean beginAnalysis = line.contains("<AnalysisStart");
+		boolean endAnalysis = line.contains("<AnalysisStop");
+
+		if (beginAnalysis) {
+			analysisLine = line;
+			parseElement(line);
+		} else if (endAnalysis) {
+			analysisLine = null;
+		} else if (buffer == null && (beginProperty || beginProgress)) {
+			buffer = new StringBuilder(line);
+			if (endProperty || endProgress) {
+				flush();
+			}
+		} else if (buffer != null) {
+			buffer.append(line);
+			if (endProperty || endProgress) {
+				flush();
+			}
+		}
+	}
+
+	private void flush() {
+		if (analysisLine != null) {
+			buffer.insert(0, analysisLine);
+		}
+		parseElement(buffer.toString());
+		buffer = null;
+	}
+
+	private void parseElement(String xml) {
+		elementStream.set(xml);
+		parser.run();
+	}
+
+	public Throwable getThrowable() {
+		return parser.getThrowable();
+	}
+
+	/**
+	 * A stream which yields a single element and then reports end of stream
+	 * until it is given the next element
+	 */
+	private static class ElementInputStream extends InputStream {
+		private byte[] data = new byte[0];
+		private int index = 0;
+
+		public void set(String xml) {
+			if (!xml.endsWith("\n")) {
+				xml = xml + "\n";
+			}
+			data = xml.getBytes(StandardCharsets.ISO_8859_1);
+			index = 0;
+		}
+
+		@Override
+		public int read() {
+			if (index >= data.length) {
+				return -1;
+			}
+			return data[index++] & 0xFF;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package jkind.relational;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.SolverOption;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.engines.SolverUtil;
+import jkind.lustre.CondactExpr;
+import jkind.lustre.Expr;
+import jkind.lustre.LustreUtil;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.Program;
+import jkind.lustre.VarDecl;
+import jkind.lustre.visitors.ExprIterVisitor;
+import jkind.results.Counterexample;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.UnknownProperty;
+import jkind.results.ValidProperty;
+import jkind.sexp.Cons;
+import jkind.sexp.Sexp;
+import jkind.sexp.Symbol;
+import jkind.solvers.Model;
+import jkind.solvers.Result;
+import jkind.solvers.SatResult;
+import jkind.solvers.Solver;
+import jkind.solvers.UnsatResult;
+import jkind.translation.ContainsTemporalOperator;
+import jkind.translation.Lustre2Sexp;
+import jkind.translation.Specification;
+import jkind.translation.Translate;
+import jkind.util.CounterexampleExtractor;
+import jkind.util.StreamIndex;
+import jkind.util.Util;
+
+/**
+ * Decides entailment and consistency of a relational node whose relations do
+ * not refer to the past, with a single solver query per question instead of
+ * a JKind run. Without state every step is independent, so the
+ * historically-wrapped checks built by {@link RelationalNodeBuilder} hold
+ * exactly when they hold at one step, and neither BMC nor induction is
+ * needed.
+ *
+ * Results are reported in the same form as the corresponding JKind runs:
+ * {@link #checkEntailment(JKindResult)} matches
+ * {@link RelationalNodeBuilder#buildEntailment()}, and
+ * {@link #checkConsistency(JKindResult)} matches
+ * {@link RelationalNodeBuilder#buildConsistency(int)} at any depth, with the
+ * conflicting relations as inductive validity core.
+ *
+ * <pre>
+ * CombinationalChecker checker = new CombinationalChecker(node, program);
+ * if (checker.isCombinational()) {
+ * 	checker.checkEntailment(result);
+ * } else {
+ * 	new JKindApi().execute(program, result, monitor);
+ * }
+ * </pre>
+ */
+public class CombinationalChecker {
+
+	public static final String CONSISTENT = "consistent";
+
+	private static final String SOURCE = "smt";
+
+	private final RelationalNodeBuilder node;
+	private final Program program;
+	private SolverOption solver = SolverOption.SMTINTERPOL;
+
+	/**
+	 * @param node
+	 *            Relations to check
+	 * @param program
+	 *            Program providing the types, constants, functions, and
+	 *            nodes used by the relations
+	 */
+	public CombinationalChecker(RelationalNodeBuilder node, Program program) {
+		this.node = node;
+		this.program = program;
+	}
+
+	public void setSolver(SolverOption solver) {
+		this.solver = solver;
+	}
+
+	/**
+	 * @return whether no relation uses pre, arrow, or condact, directly or
+	 *         through the nodes it calls
+	 */
+	public boolean isCombinational() {
+		Map<String,Node> nodes = new LinkedHashMap<>();
+		program.nodes.forEach(n -> nodes.put(n.id, n));
+		return isCombinational(node.buildCombinational(), nodes, new HashSet<>());
+	}
+
+	private static boolean isCombinational(Node node, Map<String,Node> nodes, Set<String> visited) {
+		if (!visited.add(node.id)) {
+			return true;
+		}
+
+		List<Expr> exprs = new ArrayList<>(node.assertions);
+		node.equations.forEach(eq -> exprs.add(eq.expr));
+
+		Set<String> called = new HashSet<>();
+		boolean[] condact = { false };
+		ExprIterVisitor visitor = new ExprIterVisitor() {
+			@Override
+			public Void visit(NodeCallExpr e) {
+				called.add(e.node);
+				return super.visit(e);
+			}
+
+			@Override
+			public Void visit(CondactExpr e) {
+				condact[0] = true;
+				return super.visit(e);
+			}
+		};
+
+		for (Expr expr : exprs) {
+			if (ContainsTemporalOperator.check(expr)) {
+				return false;
+			}
+			expr.accept(visitor);
+		}
+		if (condact[0]) {
+			return false;
+		}
+
+		for (String id : called) {
+			Node callee = nodes.get(id);
+			if (callee == null || !isCombinational(callee, nodes, visited)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check every property of the node against all of its relations
+	 *
+	 * @param result
+	 *            Place to store results, properties missing from it are added
+	 * @throws jkind.JKindException
+	 */
+	public void checkEntailment(JKindResult result) {
+		Node main = node.buildCombinational();
+		result.start();
+		Session session = new Session(main);
+		try {
+			for (String property : main.properties) {
+				long start = System.currentTimeMillis();
+				Result query = session.solver.query(session.encode(property));
+				getPropertyResult(result, property).setProperty(session.toProperty(property, query, start));
+			}
+		} finally {
+			session.solver.stop();
+			result.done();
+		}
+	}
+
+	/**
+	 * Check whether all relations can hold together. As with
+	 * {@link RelationalNodeBuilder#buildConsistency(int)} the property
+	 * {@link #CONSISTENT} is valid when the relations are inconsistent, and
+	 * the ivc of that result names a minimal set of conflicting relations.
+	 *
+	 * @param result
+	 *            Place to store the result, the property is added if missing
+	 * @throws jkind.JKindException
+	 */
+	public void checkConsistency(JKindResult result) {
+		Node base = node.build();
+		Node main = node.buildCombinational();
+		result.start();
+		Session session = new Session(main);
+		try {
+			long start = System.currentTimeMillis();
+			Map<Symbol,String> literals = new LinkedHashMap<>();
+			for (VarDecl relation : base.outputs) {
+				Symbol literal = session.solver.createActivationLiteral("%relation", literals.size());
+				session.solver.assertSexp(new Cons("=>", literal, session.encode(relation.id)));
+				literals.put(literal, relation.id);
+			}
+
+			Property property;
+			Result query = session.solver.unsatQuery(new ArrayList<>(literals.keySet()), Sexp.fromBoolean(false));
+			if (query instanceof UnsatResult) {
+				Set<String> ivc = new HashSet<>();
+				minimize(session.solver, ((UnsatResult) query).getUnsatCore())
+						.forEach(literal -> ivc.add(literals.get(literal)));
+				property = new ValidProperty(CONSISTENT, SOURCE, 1, elapsed(start), Collections.emptyList(), ivc,
+						Collections.emptySet(), Collections.emptySet(), false);
+			} else {
+				Sexp inconsistent = new Cons("not", session.encode("conjunct"));
+				property = session.toProperty(CONSISTENT, session.solver.query(inconsistent), start);
+			}
+			getPropertyResult(result, CONSISTENT).setProperty(property);
+		} finally {
+			session.solver.stop();
+			result.done();
+		}
+	}
+
+	/**
+	 * Remove each literal in turn while the rest stays unsatisfiable. Solvers
+	 * do not all minimize the cores they return; Z3 in particular does not.
+	 */
+	private static List<Symbol> minimize(Solver solver, List<Symbol> core) {
+		List<Symbol> minimal = new ArrayList<>(core);
+		for (Symbol literal : core) {
+			if (!minimal.contains(literal)) {
+				continue;
+			}
+
+			List<Symbol> without = new ArrayList<>(minimal);
+			without.remove(literal);
+			Result query = solver.unsatQuery(without, Sexp.fromBoolean(false));
+			if (query instanceof UnsatResult) {
+				minimal = new ArrayList<>(((UnsatResult) query).getUnsatCore());
+			}
+		}
+		return minimal;
+	}
+
+	private static PropertyResult getPropertyResult(JKindResult result, String property) {
+		PropertyResult pr = result.getPropertyResult(property);
+		return pr == null ? result.addProperty(property) : pr;
+	}
+
+	private static double elapsed(long start) {
+		return (System.currentTimeMillis() - start) / 1000.0;
+	}
+
+	/**
+	 * A solver holding the transition relation of the translated node at
+	 * step 0, encoded the same way as the JKind engines
+	 */
+	private class Session {
+		final Specification spec;
+		final Solver solver;
+
+		Session(Node main) {
+			spec = new Specification(Translate.translate(RelationalProgramBuilder.withMain(program, main)));
+			solver = SolverUtil.getSolver(CombinationalChecker.this.solver, null, spec.node);
+			solver.initialize();
+			solver.declare(spec.functions);
+			solver.define(spec.getTransitionRelation());
+			solver.define(new VarDecl(Lustre2Sexp.INIT.str, NamedType.BOOL));
+
+			List<Sexp> args = new ArrayList<>();
+			args.add(Sexp.fromBoolean(true));
+			args.addAll(defineVariables(-1));
+			args.addAll(defineVariables(0));
+			solver.assertSexp(new Cons(spec.getTransitionRelation().getName(), args));
+		}
+
+		private List<Sexp> defineVariables(int k) {
+			List<Sexp> symbols = new ArrayList<>();
+			for (VarDecl vd : Util.getVarDecls(spec.node)) {
+				Symbol symbol = new StreamIndex(vd.id, k).getEncoded();
+				solver.define(new VarDecl(symbol.str, vd.type));
+				symbols.add(symbol);
+
+				Expr constraint = LustreUtil.typeConstraint(vd.id, vd.type);
+				if (constraint != null) {
+					solver.assertSexp(constraint.accept(new Lustre2Sexp(k)));
+				}
+			}
+			return symbols;
+		}
+
+		Sexp encode(String variable) {
+			return new StreamIndex(variable, 0).getEncoded();
+		}
+
+		Property toProperty(String name, Result query, long start) {
+			if (query instanceof UnsatResult) {
+				return new ValidProperty(name, SOURCE, 1, elapsed(start), Collections.emptyList(),
+						Collections.emptySet(), Collections.emptySet(), Collections.emptySet(), false);
+			} else if (query instanceof SatResult) {
+				Model model = ((SatResult) query).getModel();
+				Counterexample cex = CounterexampleExtractor.extract(spec, 1, model);
+				return new InvalidProperty(name, SOURCE, cex, Collections.emptyList(), elapsed(start));
+			} else {
+				return new UnknownProperty(name, 0, null, elapsed(start));
+			}
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package jkind.relational;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.JKindApi;
+import jkind.api.results.JKindResult;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.lustre.VarDecl;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.ValidProperty;
+
+/**
+ * Finds the minimal sets of assumptions and constraints of a relational node
+ * which are inconsistent at a given step.
+ *
+ * Each check is a {@link RelationalNodeBuilder#buildConsistency(int)} over a
+ * subset of the relations, run with all inductive validity cores enabled, so
+ * that a single run reports every minimal conflict within that subset. The
+ * remaining conflicts are enumerated with a hitting set tree: every known
+ * conflict is broken by removing one of its relations, and the remaining
+ * relations are checked again until each branch is consistent. Subsets shown
+ * to be consistent are cached, and any subset of a cached set is not checked
+ * again.
+ *
+ * <pre>
+ * ConflictAnalyzer analyzer = new ConflictAnalyzer(node, program, JKindApi::new);
+ * analyzer.setDepth(5);
+ * ConflictAnalyzer.Result result = analyzer.execute(monitor);
+ * </pre>
+ */
+public class ConflictAnalyzer {
+
+	private final RelationalNodeBuilder node;
+	private final Program program;
+	private final Supplier<? extends JKindApi> api;
+	private int depth = 1;
+
+	private Node base;
+	private List<Set<String>> conflicts;
+	private List<Set<String>> consistent;
+	private boolean complete;
+	private int checks;
+
+	/**
+	 * @param node
+	 *            Relations to analyze
+	 * @param program
+	 *            Program providing the types, constants, functions, and
+	 *            nodes used by the relations, including the historically
+	 *            node, with main node replaced for each check
+	 * @param api
+	 *            Creates a backend for each check. All IVC reduction is
+	 *            enabled on it by the analyzer.
+	 */
+	public ConflictAnalyzer(RelationalNodeBuilder node, Program program, Supplier<? extends JKindApi> api) {
+		this.node = node;
+		this.program = program;
+		this.api = api;
+	}
+
+	/**
+	 * Set the step at which relations are checked for consistency
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * Enumerate all minimal conflicts
+	 *
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public Result execute(ICancellationMonitor monitor) {
+		base = node.build();
+		conflicts = new ArrayList<>();
+		consistent = new ArrayList<>();
+		complete = true;
+		checks = 0;
+
+		List<String> relations = new ArrayList<>();
+		for (VarDecl output : base.outputs) {
+			relations.add(output.id);
+		}
+
+		ICancellationMonitor checkMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+
+		Set<Set<String>> visited = new HashSet<>();
+		Deque<Set<String>> removals = new ArrayDeque<>();
+		removals.add(Collections.emptySet());
+		try {
+			while (!removals.isEmpty()) {
+				if (monitor.isCanceled()) {
+					complete = false;
+					break;
+				}
+
+				Set<String> removed = removals.poll();
+				if (!visited.add(removed)) {
+					continue;
+				}
+
+				Set<String> remaining = new LinkedHashSet<>(relations);
+				remaining.removeAll(removed);
+				if (isKnownConsistent(remaining)) {
+					continue;
+				}
+
+				Set<String> conflict = getContainedConflict(remaining);
+				if (conflict == null && check(remaining, checkMonitor)) {
+					conflict = getContainedConflict(remaining);
+				}
+				if (conflict == null) {
+					continue;
+				}
+
+				for (String relation : conflict) {
+					Set<String> next = new TreeSet<>(removed);
+					next.add(relation);
+					removals.add(next);
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+
+		return new Result(conflicts, complete, checks);
+	}
+
+	private boolean isKnownConsistent(Set<String> relations) {
+		return consistent.stream().anyMatch(known -> known.containsAll(relations));
+	}
+
+	private Set<String> getContainedConflict(Set<String> relations) {
+		return conflicts.stream().filter(relations::containsAll).findFirst().orElse(null);
+	}
+
+	/**
+	 * Check a subset of the relations, recording the conflicts found in it
+	 *
+	 * @return whether the subset is inconsistent
+	 */
+	private boolean check(Set<String> relations, ICancellationMonitor monitor) {
+		checks++;
+		Node main = node.buildConsistency(base, depth, relations);
+		JKindResult result = new JKindResult("conflicts" + checks, main.properties);
+
+		JKindApi backend = api.get();
+		backend.setIvcReduction();
+		backend.setAllIvcs();
+		backend.execute(RelationalProgramBuilder.withMain(program, main), result, monitor);
+
+		Property property = result.getPropertyResult(main.properties.get(0)).getProperty();
+		if (property instanceof ValidProperty) {
+			ValidProperty valid = (ValidProperty) property;
+			if (valid.getMivcTimedOut()) {
+				complete = false;
+			}
+
+			List<Set<String>> found = new ArrayList<>();
+			valid.getIvcSets().forEach(ivc -> found.add(new TreeSet<>(ivc)));
+			if (found.isEmpty()) {
+				found.add(new TreeSet<>(valid.getIvc()));
+			}
+			if (found.removeIf(Set::isEmpty)) {
+				complete = false;
+			}
+			found.stream().filter(conflict -> !conflicts.contains(conflict)).forEach(conflicts::add);
+			return true;
+		} else if (property instanceof InvalidProperty) {
+			consistent.add(relations);
+		} else {
+			complete = false;
+		}
+		return false;
+	}
+
+	public static class Result {
+		/**
+		 * Minimal sets of relations which are inconsistent at the analyzed
+		 * step, in the order they were found
+		 */
+		public final List<Set<String>> conflicts;
+
+		/**
+		 * Whether every conflict was found. This is false if the analysis
+		 * was canceled, or some check was unknown or timed out.
+		 */
+		public final boolean complete;
+
+		/**
+		 * Number of backend runs used
+		 */
+		public final int checks;
+
+		private Result(List<Set<String>> conflicts, boolean complete, int checks) {
+			this.conflicts = conflicts;
+			this.complete = complete;
+			this.checks = checks;
+		}
+	}
+}
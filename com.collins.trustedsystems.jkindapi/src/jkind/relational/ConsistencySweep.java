@@ -0,0 +1,183 @@
+package jkind.relational;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jkind.JKindException;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.KindApi;
+import jkind.api.VirtualThreads;
+import jkind.api.results.JKindResult;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.ValidProperty;
+
+/**
+ * Searches for the first step at which the relations of a node become
+ * inconsistent, checking several depths of
+ * {@link RelationalNodeBuilder#buildConsistency(int)} at the same time.
+ *
+ * Inconsistency at one depth implies inconsistency at every deeper one, and
+ * consistency at one depth implies consistency at every shallower one. So
+ * when a depth is found inconsistent all deeper runs are canceled, and when
+ * a depth is found consistent all shallower runs are canceled.
+ *
+ * <pre>
+ * ConsistencySweep sweep = new ConsistencySweep(node, program, () -&gt; {
+ * 	JKindApi api = new JKindApi();
+ * 	api.setIvcReduction();
+ * 	return api;
+ * });
+ * ConsistencySweep.Result result = sweep.execute(1, 20, monitor);
+ * </pre>
+ */
+public class ConsistencySweep {
+
+	public static final int DEFAULT_WORKERS = 4;
+
+	private final RelationalNodeBuilder node;
+	private final Program program;
+	private final Supplier<? extends KindApi> api;
+	private int workers = DEFAULT_WORKERS;
+
+	private Node base;
+	private volatile int inconsistent;
+	private volatile int consistent;
+	private volatile Set<String> ivc;
+	private volatile JKindException error;
+
+	/**
+	 * @param node
+	 *            Relations to check
+	 * @param program
+	 *            Program providing the types, constants, functions, and
+	 *            nodes used by the relations, including the historically
+	 *            node, with main node replaced at each depth
+	 * @param api
+	 *            Creates a configured backend for each depth. Enable IVC
+	 *            reduction on it to get the relations responsible for an
+	 *            inconsistency.
+	 */
+	public ConsistencySweep(RelationalNodeBuilder node, Program program, Supplier<? extends KindApi> api) {
+		this.node = node;
+		this.program = program;
+		this.api = api;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * Check all depths from first to last, shallowest first, until the
+	 * first inconsistent depth is known
+	 *
+	 * @param monitor
+	 *            Used to check for cancellation of the whole search
+	 * @throws jkind.JKindException
+	 */
+	public Result execute(int first, int last, ICancellationMonitor monitor) {
+		base = node.build();
+		inconsistent = Integer.MAX_VALUE;
+		consistent = first - 1;
+		ivc = Collections.emptySet();
+		error = null;
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers, VirtualThreads.newThreadFactory("ConsistencySweep"));
+		try {
+			for (int depth = first; depth <= last; depth++) {
+				int N = depth;
+				pool.execute(() -> check(N, monitor));
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+		} finally {
+			monitor.done();
+		}
+
+		if (error != null && inconsistent == Integer.MAX_VALUE) {
+			throw error;
+		}
+		return new Result(inconsistent == Integer.MAX_VALUE ? -1 : inconsistent, ivc, consistent);
+	}
+
+	private boolean isNeeded(int N) {
+		return N < inconsistent && N > consistent;
+	}
+
+	private void check(int N, ICancellationMonitor monitor) {
+		if (!isNeeded(N) || monitor.isCanceled()) {
+			return;
+		}
+
+		Node main = node.buildConsistency(base, N);
+		JKindResult result = new JKindResult("consistency" + N, main.properties);
+		ICancellationMonitor depthMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return !isNeeded(N) || monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+
+		try {
+			api.get().execute(RelationalProgramBuilder.withMain(program, main), result, depthMonitor);
+		} catch (JKindException e) {
+			error = e;
+			return;
+		}
+
+		Property property = result.getPropertyResult(main.properties.get(0)).getProperty();
+		if (property instanceof ValidProperty) {
+			found(N, ((ValidProperty) property).getIvc());
+		} else if (property instanceof InvalidProperty) {
+			synchronized (this) {
+				consistent = Math.max(consistent, N);
+			}
+		}
+	}
+
+	private synchronized void found(int N, Set<String> ivc) {
+		if (N < inconsistent) {
+			inconsistent = N;
+			this.ivc = ivc;
+		}
+	}
+
+	public static class Result {
+		/**
+		 * First depth at which the relations were found inconsistent, or -1
+		 * if none was. This is the first failing depth when consistentDepth
+		 * is one less; otherwise some shallower depth was left unknown.
+		 */
+		public final int depth;
+
+		/**
+		 * Relations responsible for the inconsistency, if the backend
+		 * computed an IVC
+		 */
+		public final Set<String> ivc;
+
+		/**
+		 * Deepest depth shown to be consistent
+		 */
+		public final int consistentDepth;
+
+		private Result(int depth, Set<String> ivc, int consistentDepth) {
+			this.depth = depth;
+			this.ivc = ivc;
+			this.consistentDepth = consistentDepth;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package jkind.relational;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.KindApi;
+import jkind.api.results.JKindResult;
+import jkind.api.results.PropertyResult;
+import jkind.lustre.Expr;
+import jkind.lustre.Node;
+import jkind.lustre.Program;
+
+/**
+ * Collects entailment queries over one relational node so that all of them
+ * are checked in a single backend run. Add the node from {@link #build()} as
+ * main node of a {@link RelationalProgramBuilder}, then pass the program to
+ * {@link #execute(KindApi, Program, ICancellationMonitor)}.
+ */
+public class EntailmentBatch {
+
+	private final RelationalNodeBuilder node;
+	private final List<EntailmentQuery> queries = new ArrayList<>();
+	
+	public EntailmentBatch(RelationalNodeBuilder node) {
+		this.node = node;
+	}
+	
+	public EntailmentQuery addQuery(Collection<String> premises, Expr conclusion) {
+		EntailmentQuery query = EntailmentQuery.build(premises, conclusion);
+		queries.add(query);
+		return query;
+	}
+	
+	public List<EntailmentQuery> getQueries() {
+		return queries;
+	}
+	
+	public Node build() {
+		return node.buildEntailments(queries);
+	}
+	
+	/**
+	 * Check all queries in one run
+	 * 
+	 * @param api
+	 *            Configured backend
+	 * @param program
+	 *            Program whose main node was built by {@link #build()}
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @return One result for each query, in the order the queries were added
+	 * @throws jkind.JKindException
+	 */
+	public List<PropertyResult> execute(KindApi api, Program program, ICancellationMonitor monitor) {
+		Node main = program.getMainNode();
+		if (main.properties.size() != queries.size()) {
+			throw new JKindRelationalException(main.id + " does not encode the " + queries.size() + " queries of this batch.");
+		}
+		
+		JKindResult result = new JKindResult(main.id, main.properties);
+		api.execute(program, result, monitor);
+		
+		List<PropertyResult> results = new ArrayList<>();
+		main.properties.forEach(property -> results.add(result.getPropertyResult(property)));
+		return results;
+	}
+}
@@ -0,0 +1,26 @@
+package jkind.relational;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import jkind.lustre.Expr;
+
+public class EntailmentQuery {
+
+	/**
+	 * Does the conjunction of the given assumptions and constraints,
+	 * historically, imply the conclusion?
+	 */
+	public static EntailmentQuery build(Collection<String> premises, Expr conclusion) {
+		return new EntailmentQuery(premises, conclusion);
+	}
+	
+	public final List<String> premises;
+	public final Expr conclusion;
+	
+	private EntailmentQuery(Collection<String> premises, Expr conclusion) {
+		this.premises = new ArrayList<>(premises);
+		this.conclusion = conclusion;
+	}
+}
@@ -0,0 +1,219 @@
+package jkind.relational;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jkind.JKindException;
+import jkind.api.ApiUtil.ICancellationMonitor;
+import jkind.api.JRealizabilityApi;
+import jkind.api.VirtualThreads;
+import jkind.api.results.JRealizabilityResult;
+import jkind.lustre.Program;
+import jkind.results.InvalidProperty;
+import jkind.results.Property;
+import jkind.results.UnknownProperty;
+import jkind.results.ValidProperty;
+import jkind.util.Util;
+
+/**
+ * Checks the realizability of a relational node one component at a time. The
+ * relations are split by {@link RelationalNodeBuilder} into components whose
+ * controlled variables are disjoint, and the node is realizable exactly when
+ * every component is.
+ *
+ * Components are checked concurrently, each with its own backend. As soon as
+ * one component is unrealizable the remaining runs are canceled, and the
+ * combined result names the relations of that component.
+ *
+ * <pre>
+ * RealizabilityDecomposer decomposer = new RealizabilityDecomposer(node, program, () -&gt; {
+ * 	JRealizabilityApi api = new JRealizabilityApi();
+ * 	api.setTimeout(60);
+ * 	return api;
+ * });
+ * JRealizabilityResult result = new JRealizabilityResult("realizability");
+ * decomposer.execute(result, monitor);
+ * </pre>
+ */
+public class RealizabilityDecomposer {
+
+	public static final int DEFAULT_WORKERS = 4;
+
+	private final RelationalNodeBuilder node;
+	private final Program program;
+	private final Supplier<? extends JRealizabilityApi> api;
+	private int workers = DEFAULT_WORKERS;
+
+	private List<Set<String>> components = Collections.emptyList();
+	private List<JRealizabilityResult> componentResults = Collections.emptyList();
+	private volatile boolean unrealizable;
+	private volatile JKindException error;
+
+	/**
+	 * @param node
+	 *            Relations to check
+	 * @param program
+	 *            Program providing the types, constants, functions, and
+	 *            nodes used by the relations, including the historically
+	 *            node, with main node replaced for each component
+	 * @param api
+	 *            Creates a configured backend for each component, for example
+	 *            a {@link jkind.api.eclipse.JRealizabilityApi}
+	 */
+	public RealizabilityDecomposer(RelationalNodeBuilder node, Program program,
+			Supplier<? extends JRealizabilityApi> api) {
+		this.node = node;
+		this.program = program;
+		this.api = api;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * @return Names of the relations, properties, outputs, and locals of each
+	 *         component which is checked separately
+	 */
+	public List<Set<String>> getComponents() {
+		return node.getRealizabilityComponents();
+	}
+
+	/**
+	 * @return Results of the individual components from the last execution,
+	 *         in the order of {@link #getComponents()}
+	 */
+	public List<JRealizabilityResult> getComponentResults() {
+		return componentResults;
+	}
+
+	/**
+	 * Check every component and store the combined answer in result
+	 *
+	 * @param result
+	 *            Place to store the combined result
+	 * @param monitor
+	 *            Used to check for cancellation
+	 * @throws jkind.JKindException
+	 */
+	public void execute(JRealizabilityResult result, ICancellationMonitor monitor) {
+		components = getComponents();
+		componentResults = new ArrayList<>();
+		for (int i = 0; i < components.size(); i++) {
+			componentResults.add(new JRealizabilityResult(result.getName() + " component " + i));
+		}
+		unrealizable = false;
+		error = null;
+
+		ICancellationMonitor componentMonitor = new ICancellationMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return unrealizable || monitor.isCanceled();
+			}
+
+			@Override
+			public void done() {
+			}
+		};
+
+		result.start();
+		ExecutorService pool = Executors.newFixedThreadPool(workers,
+				VirtualThreads.newThreadFactory("RealizabilityDecomposer"));
+		try {
+			for (int i = 0; i < components.size(); i++) {
+				int k = i;
+				pool.execute(() -> check(k, componentMonitor));
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+		}
+
+		Property combined = combine();
+		try {
+			if (combined != null) {
+				result.getPropertyResult().setProperty(combined);
+			}
+			if (combined == null && monitor.isCanceled()) {
+				result.cancel();
+			} else {
+				result.done();
+			}
+		} finally {
+			monitor.done();
+		}
+
+		if (combined == null && error != null) {
+			throw error;
+		}
+	}
+
+	private void check(int k, ICancellationMonitor monitor) {
+		if (monitor.isCanceled()) {
+			return;
+		}
+
+		JRealizabilityResult result = componentResults.get(k);
+		try {
+			Program component = RelationalProgramBuilder.withMain(program,
+					node.buildRealizability(components.get(k)));
+			api.get().execute(component, result, monitor);
+		} catch (JKindException e) {
+			error = e;
+			return;
+		}
+
+		if (result.getPropertyResult().getProperty() instanceof InvalidProperty) {
+			unrealizable = true;
+		}
+	}
+
+	private Property combine() {
+		String source = null;
+		int k = 0;
+		int trueFor = Integer.MAX_VALUE;
+		double runtime = 0;
+		boolean unknown = false;
+
+		for (int i = 0; i < componentResults.size(); i++) {
+			Property property = componentResults.get(i).getPropertyResult().getProperty();
+			if (property instanceof InvalidProperty) {
+				return unrealizable(i, (InvalidProperty) property);
+			} else if (property instanceof ValidProperty) {
+				ValidProperty valid = (ValidProperty) property;
+				source = valid.getSource();
+				k = Math.max(k, valid.getK());
+				runtime = Math.max(runtime, valid.getRuntime());
+			} else if (property instanceof UnknownProperty) {
+				unknown = true;
+				trueFor = Math.min(trueFor, ((UnknownProperty) property).getTrueFor());
+				runtime = Math.max(runtime, property.getRuntime());
+			} else {
+				return null;
+			}
+		}
+
+		if (unknown) {
+			return new UnknownProperty(Util.REALIZABLE, trueFor, null, runtime);
+		}
+		return new ValidProperty(Util.REALIZABLE, source, k, runtime, Collections.emptyList(),
+				Collections.emptySet(), Collections.emptySet(), Collections.emptySet(), false);
+	}
+
+	private Property unrealizable(int i, InvalidProperty property) {
+		List<String> relations = new ArrayList<>(property.getConflicts());
+		if (relations.isEmpty()) {
+			components.get(i).stream().filter(id -> node.isRelation(id)).forEach(relations::add);
+		}
+		String report = "Unrealizable component " + i + ": " + String.join(", ", relations);
+		return new InvalidProperty(Util.REALIZABLE, property.getSource(), property.getCounterexample(), relations,
+				property.getRuntime(), report);
+	}
+}
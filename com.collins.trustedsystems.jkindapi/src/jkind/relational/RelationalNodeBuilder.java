@@ -1,5 +1,6 @@
 package jkind.relational;
 
+import static jkind.lustre.LustreUtil.TRUE;
 import static jkind.lustre.LustreUtil.and;
 import static jkind.lustre.LustreUtil.arrow;
 import static jkind.lustre.LustreUtil.eq;
@@ -12,8 +13,11 @@ import static jkind.lustre.LustreUtil.plus;
 import static jkind.lustre.LustreUtil.pre;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,6 +32,7 @@ import jkind.lustre.Type;
 import jkind.lustre.VarDecl;
 import jkind.lustre.builders.EquationBuilder;
 import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.visitors.ExprIterVisitor;
 
 public class RelationalNodeBuilder {
 
@@ -152,7 +157,26 @@ public class RelationalNodeBuilder {
 		List<Expr> relationIds = new ArrayList<>();
 		assumptions.entrySet().forEach(assumption -> relationIds.add(id(assumption.getKey())));
 		constraints.entrySet().forEach(constraint -> relationIds.add(id(constraint.getKey())));
-		return new NodeCallExpr("historically", and(relationIds));
+		return new NodeCallExpr("historically", conjoin(relationIds));
+	}
+	
+	/**
+	 * Conjunction as a balanced tree, so that its depth grows with the
+	 * logarithm of the number of relations rather than linearly
+	 */
+	private static Expr conjoin(List<Expr> conjuncts) {
+		if (conjuncts.isEmpty()) {
+			return TRUE;
+		}
+		return conjoin(conjuncts, 0, conjuncts.size());
+	}
+	
+	private static Expr conjoin(List<Expr> conjuncts, int from, int to) {
+		if (to - from == 1) {
+			return conjuncts.get(from);
+		}
+		int middle = (from + to) >>> 1;
+		return and(conjoin(conjuncts, from, middle), conjoin(conjuncts, middle, to));
 	}
 	
 	private Equation crunchProperty(IdExpr id, Relation r) {
@@ -202,11 +226,181 @@ public class RelationalNodeBuilder {
 		return node.build();
 	}
 	
-	public Node buildConsistency(int N) {
+	/**
+	 * Like {@link #buildEntailment()}, but with the relations assumed only at
+	 * the current step. Agrees with it when no relation refers to the past.
+	 */
+	Node buildCombinational() {
 		NodeBuilder node = new NodeBuilder(this.build());
 		
+		List<Expr> relationIds = new ArrayList<>();
+		assumptions.keySet().forEach(assumption -> relationIds.add(id(assumption)));
+		constraints.keySet().forEach(constraint -> relationIds.add(id(constraint)));
 		IdExpr conjunct = node.createLocal("conjunct", NamedType.BOOL);
-		node.addEquation(new Equation(conjunct, conjunctAllRelations()));
+		node.addEquation(new Equation(conjunct, conjoin(relationIds)));
+		
+		properties.entrySet().forEach(property -> node.createLocal(property.getKey(), NamedType.BOOL));
+		properties.entrySet().forEach(property -> node.addEquation(crunchProperty(conjunct, property.getValue())));
+		properties.entrySet().forEach(property -> node.addProperty(property.getKey()));
+		
+		return node.build();
+	}
+	
+	/**
+	 * Like {@link #buildEntailment()}, but each property only assumes the
+	 * relations which are connected to it through shared variables, directly
+	 * or through other relations. Results agree with the unsliced entailment
+	 * as long as the relations left out are consistent, see
+	 * {@link #buildConsistency(int)}.
+	 */
+	public Node buildSlicedEntailment() {
+		NodeBuilder node = new NodeBuilder(this.build());
+		
+		Map<String,Relation> relations = new LinkedHashMap<>(assumptions);
+		relations.putAll(constraints);
+		Map<String,String> components = new HashMap<>();
+		relations.values().forEach(relation -> getVariables(relation.expr).forEach(variable -> union(components, relation.id, variable)));
+		
+		Map<Set<String>,IdExpr> premises = new HashMap<>();
+		Set<String> used = new HashSet<>(namespace);
+		for (Relation property : properties.values()) {
+			Set<String> connected = new HashSet<>();
+			getVariables(property.expr).forEach(variable -> connected.add(find(components, variable)));
+			
+			List<Expr> relevant = new ArrayList<>();
+			Set<String> relevantIds = new LinkedHashSet<>();
+			relations.keySet().stream().filter(id -> connected.contains(find(components, id))).forEach(id -> {
+				relevant.add(id(id));
+				relevantIds.add(id);
+			});
+			
+			IdExpr premise = premises.get(relevantIds);
+			if (premise == null) {
+				premise = node.createLocal(getFreshName(used, "conjunct"), NamedType.BOOL);
+				node.addEquation(new Equation(premise, new NodeCallExpr("historically", conjoin(relevant))));
+				premises.put(relevantIds, premise);
+			}
+			
+			node.createLocal(property.id, NamedType.BOOL);
+			node.addEquation(crunchProperty(premise, property));
+			node.addProperty(property.id);
+		}
+		
+		assumptions.entrySet().forEach(assumption -> node.addIvc(assumption.getKey()));
+		constraints.entrySet().forEach(constraint -> node.addIvc(constraint.getKey()));
+		
+		return node.build();
+	}
+	
+	/**
+	 * Encode many entailment queries over the relations of this node as the
+	 * properties of a single node. Relations are defined once, and queries
+	 * with the same premises share one premise. The i-th property of the
+	 * node answers the i-th query.
+	 */
+	public Node buildEntailments(List<EntailmentQuery> queries) {
+		NodeBuilder node = new NodeBuilder(this.build());
+		
+		Map<Set<String>,IdExpr> premises = new HashMap<>();
+		Set<String> used = new HashSet<>(namespace);
+		for (int i = 0; i < queries.size(); i++) {
+			EntailmentQuery query = queries.get(i);
+			Set<String> premiseIds = new LinkedHashSet<>(query.premises);
+			IdExpr premise = premises.get(premiseIds);
+			if (premise == null) {
+				List<Expr> relationIds = new ArrayList<>();
+				for (String premiseId : premiseIds) {
+					if (!assumptions.containsKey(premiseId) && !constraints.containsKey(premiseId)) {
+						throw new JKindRelationalException(premiseId + " is not an assumption or constraint of " + this.id + ".");
+					}
+					relationIds.add(id(premiseId));
+				}
+				premise = node.createLocal(getFreshName(used, "premise" + premises.size()), NamedType.BOOL);
+				node.addEquation(new Equation(premise, new NodeCallExpr("historically", conjoin(relationIds))));
+				premises.put(premiseIds, premise);
+			}
+			
+			IdExpr property = node.createLocal(getFreshName(used, "query" + i), NamedType.BOOL);
+			node.addEquation(new Equation(property, implies(premise, query.conclusion)));
+			node.addProperty(property);
+		}
+		
+		return node.build();
+	}
+	
+	/**
+	 * Inputs, outputs, locals, and relations referenced by an expression
+	 */
+	private Set<String> getVariables(Expr expr) {
+		Set<String> variables = new HashSet<>();
+		expr.accept(new ExprIterVisitor() {
+			@Override
+			public Void visit(IdExpr e) {
+				if (inputs.containsKey(e.id) || outputs.containsKey(e.id) || locals.containsKey(e.id)
+						|| assumptions.containsKey(e.id) || constraints.containsKey(e.id)) {
+					variables.add(e.id);
+				}
+				return null;
+			}
+		});
+		return variables;
+	}
+	
+	private static String find(Map<String,String> components, String id) {
+		String root = id;
+		while (components.containsKey(root)) {
+			root = components.get(root);
+		}
+		while (!id.equals(root)) {
+			String next = components.get(id);
+			components.put(id, root);
+			id = next;
+		}
+		return root;
+	}
+	
+	private static void union(Map<String,String> components, String a, String b) {
+		String rootA = find(components, a);
+		String rootB = find(components, b);
+		if (!rootA.equals(rootB)) {
+			components.put(rootA, rootB);
+		}
+	}
+	
+	private static String getFreshName(Set<String> used, String base) {
+		String name = base;
+		for (int i = 0; used.contains(name); i++) {
+			name = base + "_" + i;
+		}
+		used.add(name);
+		return name;
+	}
+	
+	public Node buildConsistency(int N) {
+		return buildConsistency(this.build(), N);
+	}
+	
+	/**
+	 * Consistency check at step N on top of a node from {@link #build()},
+	 * so that the base node can be shared between depths
+	 */
+	Node buildConsistency(Node base, int N) {
+		List<String> relations = new ArrayList<>(assumptions.keySet());
+		relations.addAll(constraints.keySet());
+		return buildConsistency(base, N, relations);
+	}
+	
+	/**
+	 * Consistency check at step N of only the given assumptions and
+	 * constraints, on top of a node from {@link #build()}
+	 */
+	Node buildConsistency(Node base, int N, Collection<String> relations) {
+		NodeBuilder node = new NodeBuilder(base);
+		
+		List<Expr> relationIds = new ArrayList<>();
+		relations.forEach(relation -> relationIds.add(id(relation)));
+		IdExpr conjunct = node.createLocal("conjunct", NamedType.BOOL);
+		node.addEquation(new Equation(conjunct, new NodeCallExpr("historically", conjoin(relationIds))));
 		
 		IdExpr step = node.createLocal("step", NamedType.INT);
 		node.addEquation(eq(step, plus(arrow(integer(0),pre(step)),integer(1))));
@@ -215,8 +409,7 @@ public class RelationalNodeBuilder {
 		node.addEquation(eq(consistent, not(and(equal(step,integer(N)), conjunct))));
 		node.addProperty(consistent);
 		
-		assumptions.entrySet().forEach(assumption -> node.addIvc(assumption.getKey()));
-		constraints.entrySet().forEach(constraint -> node.addIvc(constraint.getKey()));
+		relations.forEach(relation -> node.addIvc(relation));
 		
 		return node.build();
 	}
@@ -237,4 +430,76 @@ public class RelationalNodeBuilder {
 		
 		return node.build();
 	}
+	
+	/**
+	 * Partition the relations and properties into components which share no
+	 * outputs, locals, or relations. Assumptions over inputs only are added
+	 * to every component.
+	 * 
+	 * @return Names of the relations, properties, outputs, and locals of
+	 *         each component
+	 */
+	List<Set<String>> getRealizabilityComponents() {
+		Map<String,Relation> relations = new LinkedHashMap<>(assumptions);
+		relations.putAll(constraints);
+		relations.putAll(properties);
+		
+		Map<String,String> components = new HashMap<>();
+		Set<String> shared = new LinkedHashSet<>();
+		relations.values().forEach(relation -> {
+			Set<String> controlled = getVariables(relation.expr);
+			controlled.removeAll(inputs.keySet());
+			if (controlled.isEmpty() && assumptions.containsKey(relation.id)) {
+				shared.add(relation.id);
+			}
+			controlled.forEach(variable -> union(components, relation.id, variable));
+		});
+		
+		Map<String,Set<String>> grouped = new LinkedHashMap<>();
+		relations.keySet().stream().filter(id -> !shared.contains(id))
+				.forEach(id -> grouped.computeIfAbsent(find(components, id), root -> new LinkedHashSet<>(shared)).add(id));
+		if (grouped.isEmpty()) {
+			grouped.put(id, shared);
+		}
+		outputs.keySet().forEach(output -> grouped.getOrDefault(find(components, output), new HashSet<>()).add(output));
+		locals.keySet().forEach(local -> grouped.getOrDefault(find(components, local), new HashSet<>()).add(local));
+		return new ArrayList<>(grouped.values());
+	}
+	
+	boolean isRelation(String name) {
+		return assumptions.containsKey(name) || constraints.containsKey(name) || properties.containsKey(name);
+	}
+	
+	/**
+	 * Like {@link #buildRealizability()}, restricted to one component from
+	 * {@link #getRealizabilityComponents()}
+	 */
+	Node buildRealizability(Set<String> component) {
+		NodeBuilder node = new NodeBuilder(id);
+		inputs.values().forEach(input -> node.addInput(input));
+		outputs.values().stream().filter(output -> component.contains(output.id)).forEach(output -> node.addInput(output));
+		locals.values().stream().filter(local -> component.contains(local.id)).forEach(local -> node.addInput(local));
+		
+		List<Expr> relationIds = new ArrayList<>();
+		Map<String,Relation> relations = new LinkedHashMap<>(assumptions);
+		relations.putAll(constraints);
+		relations.values().stream().filter(relation -> component.contains(relation.id)).forEach(relation -> {
+			node.createOutput(relation.id, NamedType.BOOL);
+			node.addEquation(crunch(relation));
+			relationIds.add(id(relation.id));
+		});
+		
+		IdExpr conjunct = node.createLocal(getFreshName(new HashSet<>(namespace), "conjunct"), NamedType.BOOL);
+		node.addEquation(new Equation(conjunct, new NodeCallExpr("historically", conjoin(relationIds))));
+		
+		assumptions.values().stream().filter(assumption -> component.contains(assumption.id)).forEach(assumption -> node.addAssertion(assumption.expr));
+		properties.values().stream().filter(property -> component.contains(property.id)).forEach(property -> {
+			node.createLocal(property.id, NamedType.BOOL);
+			node.addEquation(crunchProperty(conjunct, property));
+		});
+		
+		node.setRealizabilityInputs(new ArrayList<>(inputs.keySet()));
+		
+		return node.build();
+	}
 }
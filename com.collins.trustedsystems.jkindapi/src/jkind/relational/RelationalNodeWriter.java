@@ -0,0 +1,266 @@
+package jkind.relational;
+
+import static jkind.lustre.LustreUtil.implies;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.IdExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Program;
+import jkind.lustre.Type;
+import jkind.lustre.VarDecl;
+import jkind.lustre.builders.ProgramBuilder;
+
+/**
+ * Writes the entailment node of {@link RelationalNodeBuilder#buildEntailment()}
+ * as Lustre while the relations are added, for models too large to hold as a
+ * {@link jkind.lustre.Node}. Each equation is written out as soon as its
+ * relation is created, so only the names and types of the variables and
+ * relations are kept in memory.
+ *
+ * Lustre declares variables before the equations, so equations go to a
+ * temporary file which is copied after the declarations by {@link #finish()}.
+ *
+ * <pre>
+ * try (RelationalNodeWriter node = new RelationalNodeWriter("main", writer, new RelationalProgramBuilder().build())) {
+ * 	IdExpr x = node.createInput("x", NamedType.INT);
+ * 	node.createConstraint("positive", greater(x, integer(0)));
+ * 	node.createProperty("nonnegative", greaterEqual(x, integer(0)));
+ * 	node.finish();
+ * }
+ * </pre>
+ */
+public class RelationalNodeWriter implements Closeable {
+
+	private static final String NEWLINE = System.lineSeparator();
+	private static final String CONJUNCT = "conjunct";
+
+	private final String id;
+	private final Writer out;
+	private final Program prelude;
+
+	private final SymbolTable namespace = new SymbolTable();
+
+	private final List<VarDecl> inputs = new ArrayList<>();
+	private final List<VarDecl> outputs = new ArrayList<>();
+	private final List<VarDecl> locals = new ArrayList<>();
+
+	private final List<String> assumptions = new ArrayList<>();
+	private final List<String> constraints = new ArrayList<>();
+	private final List<String> properties = new ArrayList<>();
+
+	private File spool;
+	private Writer equations;
+
+	/**
+	 * @param id
+	 *            Name of the node
+	 * @param out
+	 *            Destination of the Lustre program, not closed by this writer
+	 * @param prelude
+	 *            Types, constants, functions, and nodes written before the
+	 *            node, including the historically node, e.g. from
+	 *            {@link RelationalProgramBuilder#build()}
+	 */
+	public RelationalNodeWriter(String id, Writer out, Program prelude) {
+		this.id = id;
+		this.out = out;
+		this.prelude = prelude;
+		namespace.intern(CONJUNCT);
+
+		try {
+			spool = File.createTempFile("jkind-relational", ".lus");
+			spool.deleteOnExit();
+			equations = Files.newBufferedWriter(spool.toPath(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			close();
+			throw new JKindRelationalException("Unable to create temporary file", e);
+		}
+	}
+
+	private String declare(String name) {
+		if (namespace.contains(name)) {
+			throw new JKindRelationalException(name + " is already used in this namespace.");
+		}
+		return namespace.intern(name);
+	}
+
+	public IdExpr createInput(String name, Type t) {
+		inputs.add(new VarDecl(declare(name), t));
+		return new IdExpr(name);
+	}
+
+	public IdExpr createOutput(String name, Type t) {
+		outputs.add(new VarDecl(declare(name), t));
+		return new IdExpr(name);
+	}
+
+	public IdExpr createLocal(String name, Type t) {
+		locals.add(new VarDecl(declare(name), t));
+		return new IdExpr(name);
+	}
+
+	public Relation createAssumption(String name, Expr constraint) {
+		assumptions.add(declare(name));
+		writeEquation(name, constraint);
+		return Relation.build(name, constraint);
+	}
+
+	public Relation createConstraint(String name, Expr constraint) {
+		constraints.add(declare(name));
+		writeEquation(name, constraint);
+		return Relation.build(name, constraint);
+	}
+
+	public Relation createProperty(String name, Expr constraint) {
+		properties.add(declare(name));
+		writeEquation(name, implies(new IdExpr(CONJUNCT), constraint));
+		return Relation.build(name, constraint);
+	}
+
+	private void writeEquation(String name, Expr expr) {
+		try {
+			equations.write("  ");
+			equations.write(new Equation(new IdExpr(name), expr).toString());
+			equations.write(NEWLINE);
+			equations.write(NEWLINE);
+		} catch (IOException e) {
+			throw new JKindRelationalException("Unable to write equation for " + name, e);
+		}
+	}
+
+	/**
+	 * Write the prelude and the complete node, and remove the temporary file
+	 */
+	public void finish() {
+		try {
+			equations.close();
+			equations = null;
+
+			// Main marks the streamed node, so that no prelude node is printed as main
+			out.write(new ProgramBuilder(prelude).setMain(id).build().toString());
+			out.write(NEWLINE);
+
+			out.write("node " + id + "(" + NEWLINE);
+			List<VarDecl> nodeInputs = new ArrayList<>(inputs);
+			nodeInputs.addAll(outputs);
+			nodeInputs.addAll(locals);
+			writeVarDecls(nodeInputs);
+			out.write(NEWLINE + ") returns (" + NEWLINE);
+			List<VarDecl> relations = new ArrayList<>();
+			assumptions.forEach(assumption -> relations.add(new VarDecl(assumption, NamedType.BOOL)));
+			constraints.forEach(constraint -> relations.add(new VarDecl(constraint, NamedType.BOOL)));
+			writeVarDecls(relations);
+			out.write(NEWLINE + ");" + NEWLINE);
+
+			out.write("var" + NEWLINE);
+			List<VarDecl> nodeLocals = new ArrayList<>();
+			nodeLocals.add(new VarDecl(CONJUNCT, NamedType.BOOL));
+			properties.forEach(property -> nodeLocals.add(new VarDecl(property, NamedType.BOOL)));
+			writeVarDecls(nodeLocals);
+			out.write(";" + NEWLINE);
+
+			out.write("let" + NEWLINE);
+			out.write("  --%MAIN;" + NEWLINE);
+			try (Reader reader = Files.newBufferedReader(spool.toPath(), StandardCharsets.UTF_8)) {
+				char[] buffer = new char[1 << 16];
+				int read;
+				while ((read = reader.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			}
+
+			List<String> relationIds = new ArrayList<>(assumptions);
+			relationIds.addAll(constraints);
+			out.write("  " + CONJUNCT + " = historically(");
+			writeConjunction(relationIds, 0, relationIds.size());
+			out.write(");" + NEWLINE + NEWLINE);
+
+			if (!properties.isEmpty()) {
+				for (String property : properties) {
+					out.write("  --%PROPERTY " + property + ";" + NEWLINE);
+				}
+				out.write(NEWLINE);
+			}
+
+			if (!relationIds.isEmpty()) {
+				out.write("  --%IVC ");
+				writeList(relationIds);
+				out.write(";" + NEWLINE + NEWLINE);
+			}
+
+			out.write("tel;" + NEWLINE);
+			out.flush();
+		} catch (IOException e) {
+			throw new JKindRelationalException("Unable to write node " + id, e);
+		} finally {
+			close();
+		}
+	}
+
+	private void writeVarDecls(List<VarDecl> varDecls) throws IOException {
+		for (int i = 0; i < varDecls.size(); i++) {
+			VarDecl varDecl = varDecls.get(i);
+			out.write("  " + varDecl.id + " : " + varDecl.type);
+			if (i + 1 < varDecls.size()) {
+				out.write(";" + NEWLINE);
+			}
+		}
+	}
+
+	private void writeList(List<String> names) throws IOException {
+		for (int i = 0; i < names.size(); i++) {
+			if (i > 0) {
+				out.write(", ");
+			}
+			out.write(names.get(i));
+		}
+	}
+
+	/**
+	 * Same balanced tree as the conjunction built by
+	 * {@link RelationalNodeBuilder}, written without building it
+	 */
+	private void writeConjunction(List<String> conjuncts, int from, int to) throws IOException {
+		if (to == from) {
+			out.write("true");
+		} else if (to - from == 1) {
+			out.write(conjuncts.get(from));
+		} else {
+			int middle = (from + to) >>> 1;
+			out.write("(");
+			writeConjunction(conjuncts, from, middle);
+			out.write(" and ");
+			writeConjunction(conjuncts, middle, to);
+			out.write(")");
+		}
+	}
+
+	/**
+	 * Remove the temporary file without writing the node
+	 */
+	@Override
+	public void close() {
+		try {
+			if (equations != null) {
+				equations.close();
+				equations = null;
+			}
+		} catch (IOException e) {
+		}
+		if (spool != null) {
+			spool.delete();
+			spool = null;
+		}
+	}
+}
@@ -86,5 +86,17 @@ public class RelationalProgramBuilder {
 		program.setMain(this.mainId);
 		return program.build();
 	}
+	
+	/**
+	 * Copy a program with a different main node, replacing any node of the
+	 * same name
+	 */
+	static Program withMain(Program program, Node main) {
+		ProgramBuilder builder = new ProgramBuilder(program).clearNodes();
+		program.nodes.stream().filter(node -> !node.id.equals(main.id)).forEach(node -> builder.addNode(node));
+		builder.addNode(main);
+		builder.setMain(main.id);
+		return builder.build();
+	}
 
 }
@@ -0,0 +1,58 @@
+package jkind.relational;
+
+/**
+ * Set of names stored in a single open addressing table, so that a name
+ * costs one array slot rather than a hash map entry. Each name is stored
+ * once and the stored instance is returned for later lookups.
+ */
+class SymbolTable {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private String[] slots = new String[INITIAL_CAPACITY];
+	private int size = 0;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(String name) {
+		return slots[indexOf(slots, name)] != null;
+	}
+
+	/**
+	 * @return the stored instance of name, adding it if missing
+	 */
+	public String intern(String name) {
+		int index = indexOf(slots, name);
+		if (slots[index] != null) {
+			return slots[index];
+		}
+
+		slots[index] = name;
+		size++;
+		if (size * 4 > slots.length * 3) {
+			grow();
+		}
+		return name;
+	}
+
+	private void grow() {
+		String[] old = slots;
+		slots = new String[old.length * 2];
+		for (String name : old) {
+			if (name != null) {
+				slots[indexOf(slots, name)] = name;
+			}
+		}
+	}
+
+	private static int indexOf(String[] slots, String name) {
+		int mask = slots.length - 1;
+		int hash = name.hashCode();
+		int index = (hash ^ (hash >>> 16)) & mask;
+		while (slots[index] != null && !slots[index].equals(name)) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+}
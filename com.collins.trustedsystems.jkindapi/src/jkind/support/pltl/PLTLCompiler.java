@@ -0,0 +1,148 @@
+package jkind.support.pltl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jkind.lustre.CondactExpr;
+import jkind.lustre.Constant;
+import jkind.lustre.EnumType;
+import jkind.lustre.Equation;
+import jkind.lustre.Expr;
+import jkind.lustre.Function;
+import jkind.lustre.IdExpr;
+import jkind.lustre.NamedType;
+import jkind.lustre.Node;
+import jkind.lustre.NodeCallExpr;
+import jkind.lustre.Program;
+import jkind.lustre.TypeDef;
+import jkind.lustre.VarDecl;
+import jkind.lustre.builders.NodeBuilder;
+import jkind.lustre.builders.ProgramBuilder;
+import jkind.lustre.visitors.ExprMapVisitor;
+
+/**
+ * Gives each distinct PLTL subformula of a node a single instance. Every call
+ * to {@link PLTL#HISTORICALLY}, {@link PLTL#ONCE}, {@link PLTL#SINCE}, or
+ * {@link PLTL#TRIGGERS} is hoisted into a local of the enclosing node, and
+ * calls with the same arguments share that local. Nested calls are hoisted
+ * first, so the arguments of an outer call refer to the locals of its
+ * subformulas, and once the nodes are inlined each subformula has one copy of
+ * its state.
+ *
+ * Calls inside a condact are left in place since they only step when the
+ * condact clock is true.
+ */
+public class PLTLCompiler {
+	private static final Set<String> OPERATORS = new HashSet<>(
+			Arrays.asList(PLTL.HISTORICALLY, PLTL.ONCE, PLTL.SINCE, PLTL.TRIGGERS));
+
+	public static Program program(Program program) {
+		Set<String> globals = getGlobalNames(program);
+		ProgramBuilder builder = new ProgramBuilder(program).clearNodes();
+		for (Node node : program.nodes) {
+			builder.addNode(new NodeCompiler(node, globals).compile());
+		}
+		return builder.build();
+	}
+
+	public static Node node(Node node) {
+		return new NodeCompiler(node, new HashSet<>(OPERATORS)).compile();
+	}
+
+	private static Set<String> getGlobalNames(Program program) {
+		Set<String> names = new HashSet<>(OPERATORS);
+		for (TypeDef def : program.types) {
+			names.add(def.id);
+			if (def.type instanceof EnumType) {
+				names.addAll(((EnumType) def.type).values);
+			}
+		}
+		for (Constant constant : program.constants) {
+			names.add(constant.id);
+		}
+		for (Function function : program.functions) {
+			names.add(function.id);
+		}
+		for (Node node : program.nodes) {
+			names.add(node.id);
+		}
+		return names;
+	}
+
+	private static class NodeCompiler extends ExprMapVisitor {
+		private final Node node;
+		private final Set<String> used;
+		private final Map<String, IdExpr> instances = new HashMap<>();
+		private final List<VarDecl> locals = new ArrayList<>();
+		private final List<Equation> equations = new ArrayList<>();
+		private int next = 0;
+
+		public NodeCompiler(Node node, Set<String> globals) {
+			this.node = node;
+			this.used = new HashSet<>(globals);
+			node.inputs.forEach(decl -> used.add(decl.id));
+			node.outputs.forEach(decl -> used.add(decl.id));
+			node.locals.forEach(decl -> used.add(decl.id));
+		}
+
+		public Node compile() {
+			NodeBuilder builder = new NodeBuilder(node);
+			builder.clearEquations();
+			for (Equation equation : node.equations) {
+				builder.addEquation(new Equation(equation.location, equation.lhs, equation.expr.accept(this)));
+			}
+			builder.clearAssertions();
+			for (Expr assertion : node.assertions) {
+				builder.addAssertion(assertion.accept(this));
+			}
+			if (equations.isEmpty()) {
+				return node;
+			}
+
+			builder.addLocals(locals);
+			builder.addEquations(equations);
+			return builder.build();
+		}
+
+		@Override
+		public Expr visit(NodeCallExpr e) {
+			NodeCallExpr call = new NodeCallExpr(e.location, e.node, visitExprs(e.args));
+			if (!OPERATORS.contains(call.node)) {
+				return call;
+			}
+
+			/*
+			 * Arguments are already rewritten, so the printed call is a
+			 * canonical key of the subformula and stays short
+			 */
+			String key = call.toString();
+			IdExpr instance = instances.get(key);
+			if (instance == null) {
+				instance = new IdExpr(getFreshName(call.node));
+				instances.put(key, instance);
+				locals.add(new VarDecl(instance.id, NamedType.BOOL));
+				equations.add(new Equation(instance, call));
+			}
+			return instance;
+		}
+
+		@Override
+		public Expr visit(CondactExpr e) {
+			return e;
+		}
+
+		private String getFreshName(String operator) {
+			String name;
+			do {
+				name = operator + "_" + next++;
+			} while (used.contains(name));
+			used.add(name);
+			return name;
+		}
+	}
+}